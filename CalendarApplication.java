@@ -1,10 +1,17 @@
 package edu.moravian.csci299.mocalendar;
 
 import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 
 /**
  * Public class extending Application that is used by our application to Initialize our CalendarRepository singleton which
  * passes itself as the context for the initialize() parameter.
+ *
+ * It also listens for the device's time zone changing since DateUtils and the repository both remember things that
+ * depend on the time zone.
  */
 
 public class CalendarApplication extends Application {
@@ -13,5 +20,12 @@ public class CalendarApplication extends Application {
         super.onCreate();
         // Initialize the repository with this application as the context
         CalendarRepository.initialize(this);
+        registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                DateUtils.onTimeZoneChanged();
+                CalendarRepository.get().onTimeZoneChanged();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
     }
 }
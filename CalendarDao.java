@@ -7,7 +7,6 @@ import androidx.room.Insert;
 import androidx.room.Query;
 import androidx.room.Update;
 
-import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -34,24 +33,109 @@ public interface CalendarDao {
     LiveData<Event> getEventById(UUID id);
 
     /**
-     * Get all events between the start and end dates given. This will include any events that start
-     * or end within that range of date-times.
-     * @param start the start date
-     * @param end the end date
-     * @return live-data view of a list of all events on the calendar between those dates
+     * Get the id, start time, end time, and recurrence of every event. This is used to build the in-memory
+     * interval index so it does not need to load entire events.
+     * @return a list of the intervals of all events on the calendar
      */
-    @Query("SELECT * FROM event WHERE startTime BETWEEN (:start) AND (:end) OR endTime BETWEEN (:start) AND (:end)")
-    LiveData<List<Event>> getEventsBetween(Date start, Date end);
+    @Query("SELECT id, startTime, endTime, recurrence, excludedDates, startDay, endDay FROM event")
+    List<EventInterval> getAllIntervals();
 
     /**
-     * Get all events in a given 24 hour period starting at the given date. This will include any
-     * events that starr or end within that range of date-times.
-     * @param date the date at the beginning of the 24 hour period
-     * @return live-data view of a list of all events on the calendar starting at the given date and
-     *         ending within 24 hours
+     * Get all of the events with the given ids. This must be called from a background thread. The
+     * events are returned in no particular order and at most 999 ids can be given at once.
+     * @param ids the ids of the events to get
+     * @return a list of the events with the given ids
      */
-    @Query("SELECT * FROM event WHERE startTime BETWEEN (:date) AND (:date + 24*60*60*1000) OR endTime BETWEEN (:date) AND (:date + 24*60*60*1000)")
-    LiveData<List<Event>> getEventsOnDay(Date date);
+    @Query("SELECT * FROM event WHERE id IN (:ids)")
+    List<Event> getEventsByIds(List<UUID> ids);
+
+    /**
+     * Get the next page of all events ordered by start time (and then id) after the given event. This
+     * must be called from a background thread. Starting from the last event of each page reads every
+     * event in the calendar without skipping or repeating any, even if events are written in between. The
+     * condition is written so SQLite seeks on the (startTime, id) index and reads the page in index order,
+     * so every page costs the same however deep into the calendar it is.
+     * @param startTime the start time (in milliseconds) of the last event of the previous page, or
+     *                  Long.MIN_VALUE for the first page
+     * @param id the id of the last event of the previous page
+     * @param limit the most events to return
+     * @return the next events in order of start time
+     */
+    @Query("SELECT * FROM event WHERE startTime >= (:startTime) AND (startTime > (:startTime) OR id > (:id)) " +
+            "ORDER BY startTime, id LIMIT (:limit)")
+    List<Event> getEventsAfter(long startTime, UUID id, int limit);
+
+    /**
+     * Get the previous page of all events before the given event, the reverse of getEventsAfter(). This
+     * must be called from a background thread. The events are returned closest first, so in reverse
+     * order of start time. Like getEventsAfter() this seeks on the (startTime, id) index.
+     * @param startTime the start time (in milliseconds) of the first event of the following page
+     * @param id the id of the first event of the following page
+     * @param limit the most events to return
+     * @return the previous events in reverse order of start time
+     */
+    @Query("SELECT * FROM event WHERE startTime <= (:startTime) AND (startTime < (:startTime) OR id < (:id)) " +
+            "ORDER BY startTime DESC, id DESC LIMIT (:limit)")
+    List<Event> getEventsBefore(long startTime, UUID id, int limit);
+
+    /**
+     * Count the events of each type on each pair of start and end days, for the events on any day in a range of local
+     * days, not including repeating events. An event is on every day from its start day through its end day. The
+     * events starting before the range are found through the (startDay, endDay) index by only looking back as far as
+     * the longest event could reach. This must be called from a background thread.
+     * @param firstDay the first local epoch-day of the range
+     * @param lastDay the last local epoch-day of the range
+     * @return the number of events of each type with each start and end day, for the events on days in the range
+     */
+    @Query("SELECT startDay, endDay, type, COUNT(*) AS count FROM event " +
+            "WHERE startDay BETWEEN (:firstDay) - (SELECT IFNULL(MAX(duration), 0) FROM event) / 86400000 - 2 AND (:lastDay) " +
+            "AND endDay >= (:firstDay) AND recurrence IS NULL GROUP BY startDay, endDay, type")
+    List<DayTypeCount> getDayTypeCounts(long firstDay, long lastDay);
+
+    /**
+     * Get every repeating event whose first occurrence starts before the given time. This must be called
+     * from a background thread.
+     * @param end the time in milliseconds
+     * @return the repeating events starting before that time
+     */
+    @Query("SELECT * FROM event WHERE recurrence IS NOT NULL AND startTime < (:end)")
+    List<Event> getRepeatingEventsBefore(long end);
+
+    /**
+     * Search the names and descriptions of all events using the full-text search table. This must be called from
+     * a background thread. The query uses the SQLite FTS syntax, for example "exam*" matches every word starting
+     * with "exam". Only the ids and match information are returned so this is cheap even with many matches, rank
+     * them with SearchMatch.score() and then get the best with getSearchResults(). At most limit matches are
+     * returned (the first ones in the full-text index) so a query matching most of the calendar stays bounded.
+     * @param query the full-text search query
+     * @param limit the most matches to return
+     * @return the ids and match information of the matching events, in no particular order
+     */
+    @Query("SELECT event.id AS id, matchinfo(EventFts, 'pcx') AS matchInfo " +
+            "FROM EventFts JOIN event ON event.rowid = EventFts.docid WHERE EventFts MATCH (:query) LIMIT (:limit)")
+    List<SearchMatch> searchMatches(String query, int limit);
+
+    /**
+     * Get the names and a snippet of the matching text of some of the events matching a full-text search. This
+     * must be called from a background thread. The full-text search still visits every match, but each is checked
+     * against the docids of the wanted events before its event row is looked up, so only those rows are read.
+     * @param query the same full-text search query given to searchMatches()
+     * @param ids the ids of the events to get, at most 999
+     * @return the ids, names, and snippets of those events, in no particular order
+     */
+    @Query("SELECT event.id AS id, event.name AS name, snippet(EventFts, '[', ']', '...', -1, 12) AS snippet " +
+            "FROM EventFts JOIN event ON event.rowid = EventFts.docid WHERE EventFts MATCH (:query) " +
+            "AND EventFts.docid IN (SELECT rowid FROM event WHERE id IN (:ids))")
+    List<EventSearchResult> getSearchResults(String query, List<UUID> ids);
+
+    /**
+     * Set the stored local days of an event, used when the time zone changes.
+     * @param id the id of the event
+     * @param startDay the local epoch-day the event starts on
+     * @param endDay the local epoch-day the event ends on
+     */
+    @Query("UPDATE event SET startDay = (:startDay), endDay = (:endDay) WHERE id = (:id)")
+    void setDays(UUID id, long startDay, long endDay);
 
     /**
      * Add an event to the database.
@@ -73,4 +157,31 @@ public interface CalendarDao {
      */
     @Delete
     void removeEvent(Event event);
+
+    /**
+     * Remove every event from the database.
+     */
+    @Query("DELETE FROM event")
+    void removeAllEvents();
+
+    /**
+     * Add several events to the database in a single transaction.
+     * @param events the events to add
+     */
+    @Insert
+    void addEvents(List<Event> events);
+
+    /**
+     * Update several events in the database in a single transaction.
+     * @param events the events to update
+     */
+    @Update
+    void updateEvents(List<Event> events);
+
+    /**
+     * Remove several events from the database in a single transaction.
+     * @param events the events to remove
+     */
+    @Delete
+    void removeEvents(List<Event> events);
 }
@@ -3,14 +3,176 @@ package edu.moravian.csci299.mocalendar;
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import android.database.Cursor;
+
+import java.util.UUID;
 
 /**
  * Abstract class extending RoomDatabase that Room uses to create class for database. We list all entities for Room and in this case
- * it is just our Event class and we create method for assigning our DAO class named CalendarDao.
+ * it is our Event class and the EventFts full-text search table over it and we create method for assigning our DAO
+ * class named CalendarDao.
+ *
+ * Each time the schema changes the version is incremented and a migration from the previous version is added
+ * here (and registered with the database builder in CalendarRepository) so that existing events are kept.
  */
-@Database(entities = {Event.class}, version = 1)
+@Database(entities = {Event.class, EventFts.class}, version = 9)
 @TypeConverters(CalendarTypeConverter.class)
 public abstract class CalendarDatabase extends RoomDatabase {
     public abstract CalendarDao calendarDao();
+
+    /**
+     * Version 2 adds indices on the start time, end time, and type with start time of events.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startTime` ON `Event` (`startTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_endTime` ON `Event` (`endTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_type_startTime` ON `Event` (`type`, `startTime`)");
+        }
+    };
+
+    /**
+     * Version 3 stores the event ids as 16-byte blobs instead of strings. SQLite cannot change the type of a
+     * primary key in place so the table is rebuilt, converting each id as it is copied.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE `Event_new` (`id` BLOB NOT NULL, `startTime` INTEGER NOT NULL, " +
+                    "`endTime` INTEGER, `name` TEXT NOT NULL, `type` TEXT NOT NULL, `description` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            SupportSQLiteStatement insert = database.compileStatement("INSERT INTO `Event_new` " +
+                    "(`id`, `startTime`, `endTime`, `name`, `type`, `description`) VALUES (?, ?, ?, ?, ?, ?)");
+            try (Cursor cursor = database.query("SELECT `id`, `startTime`, `endTime`, `name`, `type`, `description` FROM `Event`")) {
+                while (cursor.moveToNext()) {
+                    insert.bindBlob(1, CalendarTypeConverter.uuidToBytes(UUID.fromString(cursor.getString(0))));
+                    insert.bindLong(2, cursor.getLong(1));
+                    if (cursor.isNull(2)) { insert.bindNull(3); } else { insert.bindLong(3, cursor.getLong(2)); }
+                    insert.bindString(4, cursor.getString(3));
+                    insert.bindString(5, cursor.getString(4));
+                    insert.bindString(6, cursor.getString(5));
+                    insert.executeInsert();
+                }
+            }
+            database.execSQL("DROP TABLE `Event`");
+            database.execSQL("ALTER TABLE `Event_new` RENAME TO `Event`");
+            MIGRATION_1_2.migrate(database); // recreate the indices on the new table
+        }
+    };
+
+    /**
+     * Version 4 stores the event types as their integer codes instead of their names. The table is rebuilt since
+     * SQLite cannot change the type of a column, converting each name to its code as it is copied.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            StringBuilder typeCode = new StringBuilder("CASE `type`");
+            for (EventType type : EventType.values()) {
+                typeCode.append(" WHEN '").append(type.name()).append("' THEN ").append(type.code);
+            }
+            typeCode.append(" ELSE ").append(EventType.GENERIC.code).append(" END");
+            database.execSQL("CREATE TABLE `Event_new` (`id` BLOB NOT NULL, `startTime` INTEGER NOT NULL, " +
+                    "`endTime` INTEGER, `name` TEXT NOT NULL, `type` INTEGER NOT NULL, `description` TEXT NOT NULL, " +
+                    "PRIMARY KEY(`id`))");
+            database.execSQL("INSERT INTO `Event_new` (`id`, `startTime`, `endTime`, `name`, `type`, `description`) " +
+                    "SELECT `id`, `startTime`, `endTime`, `name`, " + typeCode + ", `description` FROM `Event`");
+            database.execSQL("DROP TABLE `Event`");
+            database.execSQL("ALTER TABLE `Event_new` RENAME TO `Event`");
+            MIGRATION_1_2.migrate(database); // recreate the indices on the new table
+        }
+    };
+
+    /**
+     * Version 5 adds the recurrence rule and excluded dates of repeating events.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `Event` ADD COLUMN `recurrence` TEXT");
+            database.execSQL("ALTER TABLE `Event` ADD COLUMN `excludedDates` TEXT");
+        }
+    };
+
+    /**
+     * Version 6 adds the EventFts full-text search table along with the triggers that keep it in sync with the event
+     * table, and then fills it with the existing events.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `EventFts` USING FTS4(`name` TEXT, `description` TEXT, " +
+                    "content=`Event`)");
+            for (String when : new String[] { "BEFORE_UPDATE", "BEFORE_DELETE" }) {
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_EventFts_" + when + " " +
+                        when.replace('_', ' ') + " ON `Event` BEGIN DELETE FROM `EventFts` WHERE `docid`=OLD.`rowid`; END");
+            }
+            for (String when : new String[] { "AFTER_UPDATE", "AFTER_INSERT" }) {
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_EventFts_" + when + " " +
+                        when.replace('_', ' ') + " ON `Event` BEGIN INSERT INTO `EventFts`(`docid`, `name`, `description`) " +
+                        "VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END");
+            }
+            database.execSQL("INSERT INTO `EventFts`(`EventFts`) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * Version 7 adds the local days that each event starts and ends on, indexed together. The days depend on the
+     * time zone so they are worked out here for each existing event.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `Event` ADD COLUMN `startDay` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE `Event` ADD COLUMN `endDay` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startDay_endDay` ON `Event` (`startDay`, `endDay`)");
+            SupportSQLiteStatement update = database.compileStatement(
+                    "UPDATE `Event` SET `startDay` = ?, `endDay` = ? WHERE `rowid` = ?");
+            try (Cursor cursor = database.query("SELECT `rowid`, `startTime`, `endTime` FROM `Event`")) {
+                while (cursor.moveToNext()) {
+                    long startTime = cursor.getLong(1);
+                    update.bindLong(1, DateUtils.toEpochDay(startTime));
+                    update.bindLong(2, DateUtils.toEndEpochDay(startTime, cursor.isNull(2) ? startTime : cursor.getLong(2)));
+                    update.bindLong(3, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                }
+            }
+        }
+    };
+
+    /**
+     * Version 8 adds the indexed duration of each event, so overlap queries know how far back to search.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `Event` ADD COLUMN `duration` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `Event` SET `duration` = MAX(0, `endTime` - `startTime`) WHERE `endTime` IS NOT NULL");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_duration` ON `Event` (`duration`)");
+        }
+    };
+
+    /**
+     * Version 9 indexes the start time together with the id, which keyset paging orders by, so each page is a seek
+     * instead of a sort of every later event. It replaces the index on just the start time, which it covers.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS `index_Event_startTime`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Event_startTime_id` ON `Event` (`startTime`, `id`)");
+        }
+    };
+
+    /**
+     * All of the migrations between database versions, in order.
+     */
+    public static final Migration[] MIGRATIONS = { MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+            MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9 };
 }
 
@@ -1,24 +1,112 @@
 package edu.moravian.csci299.mocalendar;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import android.util.LruCache;
 
+import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 import androidx.room.Room;
+import androidx.room.RoomDatabase;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Creates the repository for our database in this application. We make the room database a singleton and have
  * three class variables to save the singleton instance of our application's database, our executor, and its DAO.
+ *
+ * The database uses write-ahead logging so reads never wait for a write to commit. All writes (and changes to the
+ * index) are made on a single writer thread, and queries run on a small pool of reader threads, so a large import
+ * does not hold up loading the day being shown.
+ *
+ * Range and day queries are answered from an in-memory interval index of every event instead of scanning the
+ * event table. The index is built on the writer thread when the repository is created and is kept up to date
+ * by every write made through the repository. Repeating events are stored and indexed once and their occurrences
+ * are generated just for the range being queried.
+ *
+ * Writes are not committed one at a time. They go into a WriteQueue that coalesces pending writes to the same event
+ * and commits everything that is waiting in a single transaction, so a burst of edits costs one commit.
+ *
+ * The events of recently viewed days are kept in an LRU cache keyed by local epoch-day. A write evicts just the days
+ * covered by the old and new versions of the events it touches, and the days around the one being viewed are loaded
+ * ahead of time so paging through days is served from memory.
  */
 public class CalendarRepository {
+    private static final String TAG = "CalendarRepository";
+    // the most ids that are put into a single "IN (...)" query, SQLite allows at most 999 variables
+    private static final int MAX_IDS_PER_QUERY = 500;
+    // the number of days whose events are kept in memory
+    private static final int DAY_CACHE_SIZE = 62;
+    // the number of events imported in each transaction or exported in each page
+    private static final int TRANSFER_BATCH_SIZE = 500;
+    // snapshots have nothing to parse so they restore in larger transactions (and report export progress less often)
+    private static final int SNAPSHOT_BATCH_SIZE = 5000;
+    // the number of events in each page of the paged event list and the most kept in memory at once
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGED_EVENTS = 300;
+    // the most search matches that are ranked, and the shortest word that is matched as a prefix
+    private static final int MAX_SEARCH_CANDIDATES = 2000;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    // the number of threads that run queries, SQLite on Android keeps a few connections for reading in WAL mode
+    private static final int READER_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     private final CalendarDatabase database;
     private final CalendarDao calendarDao;
-    private final Executor executor = Executors.newSingleThreadExecutor(); //for assigning tasks to background thread
+    private final Executor writeExecutor; // runs one task at a time, all writes and changes to the index happen on it
+    private final Executor readExecutor; // runs the queries
+    // every task for the writer and readers goes through these so that its wait can be measured
+    private final Executor writer = this::runOnWriter;
+    private final Executor readers = this::runOnReader;
+    // imports and exports wait for the writer so they need a thread of their own
+    private final ExecutorService transferExecutor = Executors.newSingleThreadExecutor();
+    private final EventIntervalIndex intervalIndex = new EventIntervalIndex();
+    private final WriteQueue writeQueue = new WriteQueue(writer, this::flushBatch);
+    // unmodifiable lists of the events on each local epoch-day, filled in by the readers
+    private final LruCache<Long, List<Event>> dayCache = new LruCache<>(DAY_CACHE_SIZE);
+    // incremented (while holding the lock on dayCache) whenever cached days are evicted, a reader only caches the
+    // day it loaded if no eviction happened while it was loading so it never caches something already out of date
+    private long cacheGeneration = 0;
+    // the number of events of each type on each day of the months that have been looked at
+    private final DayDensityTable densityTable = new DayDensityTable();
+    // incremented (on the writer thread) every time the index changes, range queries re-run when it changes
+    private final MutableLiveData<Integer> indexVersion = new MutableLiveData<>();
+    private int version = 0;
+    // the paging sources currently in use, they are all invalidated when the events change
+    private final Set<EventPagingSource> pagingSources = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile RepositoryMetrics metrics = RepositoryMetrics.NONE;
+    // the tasks waiting for the readers and the writer, only counted while metrics are being recorded
+    private final AtomicInteger queuedReads = new AtomicInteger();
+    private final AtomicInteger queuedWrites = new AtomicInteger();
 
     /**
      * Private constructor for creating instance of singleton repository. Set the database and the DAO to the respective
@@ -27,22 +115,266 @@ public class CalendarRepository {
      *
      * @param context context that is passed from initialize() as parameter for building the database repository, in our case
      *                it is CalendarApplication.
+     * @param readExecutor the executor to run queries on
+     * @param writeExecutor the executor to run writes on, it must run tasks one at a time in the order given
      */
-    private CalendarRepository(Context context){
+    private CalendarRepository(Context context, Executor readExecutor, Executor writeExecutor){
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
         database = Room.databaseBuilder(
                 context.getApplicationContext(),
                 CalendarDatabase.class,
-                "calendar_database").build();
+                "calendar_database")
+                .addMigrations(CalendarDatabase.MIGRATIONS)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(readExecutor)
+                .setTransactionExecutor(writeExecutor)
+                .build();
         calendarDao = database.calendarDao();
+        writer.execute(this::loadIndex);
+    }
+
+    /**
+     * Sets where the measurements of how the repository performs are recorded.
+     * @param metrics the metrics to record to, RepositoryMetrics.NONE to stop recording
+     */
+    public void setMetrics(RepositoryMetrics metrics) { this.metrics = metrics; }
+
+    /**
+     * @return the metrics being recorded to, RepositoryMetrics.NONE if none are
+     */
+    public RepositoryMetrics getMetrics() { return metrics; }
+
+    private void runOnWriter(Runnable task) {
+        runMeasured(writeExecutor, RepositoryMetrics.Pool.WRITE, queuedWrites, task);
+    }
+
+    private void runOnReader(Runnable task) {
+        runMeasured(readExecutor, RepositoryMetrics.Pool.READ, queuedReads, task);
+    }
+
+    /**
+     * Runs a task on an executor, measuring how long it waits to start if metrics are being recorded.
+     * @param executor the writer or reader executor
+     * @param pool which of them it is, for the metrics
+     * @param queuedTasks the number of tasks waiting for that executor
+     * @param task the task to run
+     */
+    private void runMeasured(Executor executor, RepositoryMetrics.Pool pool, AtomicInteger queuedTasks, Runnable task) {
+        RepositoryMetrics metrics = this.metrics;
+        if (metrics == RepositoryMetrics.NONE) {
+            executor.execute(task);
+            return;
+        }
+        long queued = System.nanoTime();
+        queuedTasks.incrementAndGet();
+        executor.execute(() -> {
+            metrics.recordExecutorWait(pool, System.nanoTime() - queued, queuedTasks.decrementAndGet());
+            task.run();
+        });
+    }
+
+    /**
+     * Counts the re-runs of one live query in the metrics. The first run is the query being subscribed to, not
+     * re-run because the events changed, so it is not counted. Only used on the main thread.
+     */
+    private class RequeryCounter {
+        private final RepositoryMetrics.Operation operation;
+        private boolean first = true;
+
+        RequeryCounter(RepositoryMetrics.Operation operation) { this.operation = operation; }
+
+        void count() {
+            if (first) {
+                first = false;
+            } else {
+                metrics.recordRequery(operation);
+            }
+        }
+    }
+
+    /**
+     * @return the time to measure an operation from, or 0 if metrics are not being recorded
+     */
+    private long startTiming() {
+        return metrics == RepositoryMetrics.NONE ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records how long an operation took if metrics are being recorded.
+     * @param operation the operation
+     * @param start the time returned by startTiming() before the operation
+     * @param rows the number of events loaded or written
+     */
+    private void record(RepositoryMetrics.Operation operation, long start, int rows) {
+        RepositoryMetrics metrics = this.metrics;
+        if (start != 0 && metrics != RepositoryMetrics.NONE) {
+            metrics.recordLatency(operation, System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * Builds the interval index from the database. Must be run on the writer thread. The stored days of the events
+     * are checked too since the time zone may have changed while the app was not running.
+     */
+    private void loadIndex() {
+        long start = startTiming();
+        List<EventInterval> intervals = calendarDao.getAllIntervals();
+        refreshDays(intervals);
+        synchronized (dayCache) {
+            intervalIndex.clear();
+            for (EventInterval interval : intervals) {
+                intervalIndex.put(interval);
+            }
+            cacheGeneration++;
+            dayCache.evictAll();
+        }
+        densityTable.clear();
+        record(RepositoryMetrics.Operation.LOAD_INDEX, start, intervals.size());
+        indexChanged();
+    }
+
+    /**
+     * Sets the stored start and end days (in the current time zone) and duration of an event from its times. Must be
+     * done before every add or update of an event.
+     * @param event the event to set the days and duration of
+     */
+    static void setDerivedColumns(Event event) {
+        long startTime = event.startTime.getTime();
+        long endTime = event.endTime == null ? startTime : Math.max(startTime, event.endTime.getTime());
+        event.startDay = DateUtils.toEpochDay(startTime);
+        event.endDay = DateUtils.toEndEpochDay(startTime, endTime);
+        event.duration = endTime - startTime;
+    }
+
+    /**
+     * Rewrites the stored days of every event whose days are different in the current time zone, in a single
+     * transaction. Must be run on the writer thread.
+     * @param intervals the intervals of all events in the database
+     */
+    private void refreshDays(List<EventInterval> intervals) {
+        List<EventInterval> changed = new ArrayList<>();
+        for (EventInterval interval : intervals) {
+            long startTime = interval.startTime;
+            long endTime = interval.endTime == null ? startTime : Math.max(startTime, interval.endTime);
+            long startDay = DateUtils.toEpochDay(startTime), endDay = DateUtils.toEndEpochDay(startTime, endTime);
+            if (interval.startDay != startDay || interval.endDay != endDay) {
+                interval.startDay = startDay;
+                interval.endDay = endDay;
+                changed.add(interval);
+            }
+        }
+        if (changed.isEmpty()) { return; }
+        database.runInTransaction(() -> {
+            for (EventInterval interval : changed) { calendarDao.setDays(interval.id, interval.startDay, interval.endDay); }
+        });
+    }
+
+    /**
+     * Notifies all range queries that the index has changed. Must be run on the writer thread.
+     */
+    private void indexChanged() {
+        indexVersion.postValue(++version);
+        pagingSources.removeIf(source -> { source.invalidate(); return true; });
+    }
+
+    /**
+     * Creates live data of all events overlapping the given range using the interval index (see
+     * EventIntervalIndex.overlapping()). The list is reloaded every time the index changes and is ordered by start
+     * time.
+     * @param start the start of the range in milliseconds
+     * @param end the end of the range in milliseconds (exclusive)
+     * @param transform what to turn the list of events into, run on the reader thread
+     * @return live data of the transformed list of the events in the range
+     */
+    private <T> LiveData<T> queryIndex(long start, long end, Function<List<Event>, T> transform) {
+        RequeryCounter requeries = new RequeryCounter(RepositoryMetrics.Operation.RANGE_QUERY);
+        return Transformations.switchMap(indexVersion, version -> {
+            requeries.count();
+            MutableLiveData<T> result = new MutableLiveData<>();
+            readers.execute(() -> {
+                long started = startTiming();
+                List<Event> events = loadRange(start, end);
+                record(RepositoryMetrics.Operation.RANGE_QUERY, started, events.size());
+                result.postValue(transform.apply(events));
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Loads all events overlapping a range using the interval index (see EventIntervalIndex.overlapping()). Repeating
+     * events are replaced by their occurrences in the range. Must be run on a reader thread.
+     * @param start the start of the range in milliseconds
+     * @param end the end of the range in milliseconds (exclusive)
+     * @return the list of events in the range, ordered by start time
+     */
+    private List<Event> loadRange(long start, long end) {
+        return loadRange(calendarDao, intervalIndex, start, end);
+    }
+
+    /**
+     * Loads all events overlapping a range the way the repository does, using the given DAO and interval index. This
+     * is what answers every day and range query (and is package-private so it can be benchmarked).
+     * @param dao the DAO to load the events with
+     * @param index the interval index of all events
+     * @param start the start of the range in milliseconds
+     * @param end the end of the range in milliseconds (exclusive)
+     * @return the list of events in the range, ordered by start time
+     */
+    static List<Event> loadRange(CalendarDao dao, EventIntervalIndex index, long start, long end) {
+        return RecurrenceRule.expand(loadEvents(dao, index.overlapping(start, end)), start, end);
     }
 
     /**
-     * public method for for accessing the getAllEvents() method in CalendarDao.
+     * Loads the events with the given ids from the database, keeping them in the same order as the ids. Must be
+     * run on a reader thread.
+     * @param dao the DAO to load the events with
+     * @param ids the ids of the events to load
+     * @return the list of loaded events
+     */
+    private static List<Event> loadEvents(CalendarDao dao, List<UUID> ids) {
+        Map<UUID, Event> loaded = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+            for (Event event : dao.getEventsByIds(ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY)))) {
+                loaded.put(event.id, event);
+            }
+        }
+        List<Event> events = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Event event = loaded.get(id);
+            if (event != null) { events.add(event); }
+        }
+        return events;
+    }
+
+    /**
+     * public method for for accessing the getAllEvents() method in CalendarDao. This loads the entire table every
+     * time any event changes, screens that show every event should use getAllEventsPaged() instead.
      *
      * @return all events in database in form of live data list
      */
     public LiveData<List<Event>> getAllEvents() { return calendarDao.getAllEvents(); }
 
+    /**
+     * public method for getting every event a page at a time in order of start time. Pages are loaded as the user
+     * scrolls in either direction and pages far from what is being shown are dropped, so only a window of events is
+     * ever in memory. The pages are reloaded (around what is being shown) whenever the events change. Callers should
+     * use PagingLiveData.cachedIn() so the pages survive configuration changes.
+     * @param from the date to start at, or null to start at the first event
+     * @return LiveData of the pages of events
+     */
+    public LiveData<PagingData<Event>> getAllEventsPaged(Date from) {
+        PagingConfig config = new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, 2 * PAGE_SIZE, MAX_PAGED_EVENTS);
+        Pager<EventPagingSource.Key, Event> pager = new Pager<>(config,
+                from == null ? null : EventPagingSource.Key.startingAt(from.getTime()), () -> {
+                    EventPagingSource source = new EventPagingSource(calendarDao, readers, metrics);
+                    pagingSources.add(source);
+                    return source;
+                });
+        return PagingLiveData.getLiveData(pager);
+    }
+
     /**
      *  public method for for accessing the getEventById() method in CalendarDao.
      * @param id UUID of the event we which to return from database
@@ -51,52 +383,746 @@ public class CalendarRepository {
     public LiveData<Event> getEventById(UUID id) { return calendarDao.getEventById(id); }
 
     /**
-     * public method for for accessing the getEventsBetween() method in CalendarDao.
+     * public method for searching the names and descriptions of all events. Each word of the text given is matched
+     * as the start of a word so this works for search-as-you-type, except that words shorter than MIN_PREFIX_LENGTH
+     * must match a whole word (otherwise typing a single letter would match nearly every event). Events are ranked by
+     * SearchMatch.score(), which favors matches in the name and of rarer words. Only the first MAX_SEARCH_CANDIDATES
+     * matches are ranked, so a very common word costs the same as a rarer one but may miss some better matches. The
+     * search runs on a reader thread and is re-run whenever the events change.
+     * @param text the words to search for
+     * @param limit the most results to return
+     * @return LiveData list of the best matching events
+     */
+    public LiveData<List<EventSearchResult>> search(String text, int limit) {
+        String query = toPrefixQuery(text);
+        RequeryCounter requeries = new RequeryCounter(RepositoryMetrics.Operation.SEARCH);
+        return Transformations.switchMap(indexVersion, version -> {
+            MutableLiveData<List<EventSearchResult>> result = new MutableLiveData<>();
+            if (query.isEmpty()) {
+                result.setValue(Collections.emptyList());
+            } else {
+                requeries.count();
+                readers.execute(() -> {
+                    long start = startTiming();
+                    List<EventSearchResult> results = loadSearch(calendarDao, query, limit);
+                    record(RepositoryMetrics.Operation.SEARCH, start, results.size());
+                    result.postValue(results);
+                });
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Finds and ranks the events matching a full-text search (at most MAX_SEARCH_CANDIDATES of them) and loads the
+     * snippets of the best. Must be run on a reader thread (and is package-private so it can be benchmarked).
+     * @param dao the DAO to search with
+     * @param query the full-text search query
+     * @param limit the most results to return
+     * @return the best matching events, best first
+     */
+    static List<EventSearchResult> loadSearch(CalendarDao dao, String query, int limit) {
+        List<SearchMatch> matches = dao.searchMatches(query, MAX_SEARCH_CANDIDATES);
+        Map<UUID, Double> scores = new HashMap<>();
+        for (SearchMatch match : matches) { scores.put(match.id, match.score()); }
+        Collections.sort(matches, (a, b) -> Double.compare(scores.get(b.id), scores.get(a.id)));
+        List<UUID> ids = new ArrayList<>();
+        for (SearchMatch match : matches.subList(0, Math.min(limit, matches.size()))) { ids.add(match.id); }
+        if (ids.isEmpty()) { return Collections.emptyList(); }
+        List<EventSearchResult> results = dao.getSearchResults(query, ids);
+        Collections.sort(results, (a, b) -> Double.compare(scores.get(b.id), scores.get(a.id)));
+        return results;
+    }
+
+    /**
+     * Turns text typed by the user into a full-text search query where every word must match the start of a word, or
+     * the whole word if it is shorter than MIN_PREFIX_LENGTH. Anything other than letters and digits is dropped so the
+     * user can't type invalid query syntax.
+     * @param text the text typed by the user
+     * @return the full-text search query, empty if there are no words
+     */
+    static String toPrefixQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) { continue; }
+            if (query.length() > 0) { query.append(' '); }
+            query.append(word);
+            if (word.codePointCount(0, word.length()) >= MIN_PREFIX_LENGTH) { query.append('*'); }
+        }
+        return query.toString();
+    }
+
+    /**
+     * public method for getting all events that overlap the range from start to end, including events that start
+     * before the range and end after it. Events ending exactly at the start or starting exactly at the end are not
+     * included (see EventIntervalIndex.overlapping()). Answered from the interval index.
      * @param start the start Date
-     * @param end the end Date
-     * @return LiveList<List<Event>> from the start date to the end date
+     * @param end the end Date (exclusive)
+     * @return LiveList<List<Event>> from the start date to the end date, ordered by start time
      */
     public LiveData<List<Event>> getEventsBetween(Date start, Date end){
-        return calendarDao.getEventsBetween(start, end);
+        return queryIndex(start.getTime(), end.getTime(), events -> events);
     }
 
     /**
-     * public method for for accessing the getEventsOnDay() method in CalendarDao
+     * public method for finding the free time between events, for example to find an open hour in a week of classes.
+     * All of the events in the range are loaded at once from the interval index and merged in a single sweep (see
+     * FreeSlotFinder), so even a whole semester is quick. Assignments (events without an end time) take no time. The
+     * slots are found again every time the events change.
+     * @param rangeStart the start of the range to search
+     * @param rangeEnd the end of the range to search
+     * @param minDuration the shortest slot to find in milliseconds
+     * @param workingHours the hours of each day to search in, or null for the whole day
+     * @return LiveData list of the free slots in order
+     */
+    public LiveData<List<TimeSlot>> findFreeSlots(Date rangeStart, Date rangeEnd, long minDuration, WorkingHours workingHours) {
+        long start = rangeStart.getTime(), end = rangeEnd.getTime();
+        return queryIndex(start, end, events -> FreeSlotFinder.findFreeSlots(events, start, end, minDuration, workingHours));
+    }
+
+    /**
+     * public method for finding the groups of events that overlap each other in the range from start to end (see
+     * ConflictDetector). The groups are found again every time the events change.
+     * @param start the start Date
+     * @param end the end Date (exclusive)
+     * @return LiveData list of the groups of conflicting events, each group ordered by start time
+     */
+    public LiveData<List<List<Event>>> getConflictsBetween(Date start, Date end) {
+        return queryIndex(start.getTime(), end.getTime(), ConflictDetector::findConflicts);
+    }
+
+    /**
+     * public method for finding the groups of events that overlap each other on the day containing the given date
+     * (see ConflictDetector). The events of the day come from the same cache as getEventsOnDay(). The groups are
+     * found again every time the events change.
+     * @param date Date to get the conflicts of
+     * @return LiveData list of the groups of conflicting events, each group ordered by start time
+     */
+    public LiveData<List<List<Event>>> getConflictsOnDay(Date date) {
+        long day = DateUtils.toEpochDay(date.getTime());
+        RequeryCounter requeries = new RequeryCounter(RepositoryMetrics.Operation.CONFLICT_QUERY);
+        return Transformations.switchMap(indexVersion, version -> {
+            requeries.count();
+            MutableLiveData<List<List<Event>>> result = new MutableLiveData<>();
+            readers.execute(() -> {
+                long start = startTiming();
+                List<Event> events = loadDay(day);
+                List<List<Event>> conflicts = ConflictDetector.findConflicts(events);
+                record(RepositoryMetrics.Operation.CONFLICT_QUERY, start, events.size());
+                result.postValue(conflicts);
+            });
+            return result;
+        });
+    }
+
+    /**
+     * public method for finding the events that overlap a single event, for example while it is being edited. Only
+     * the events the interval index finds around the event are loaded and checked, not the whole day. The event's
+     * times are read when this is called and the check is made once, it is not repeated when the events change.
+     * @param event the event to check, which does not need to be saved yet
+     * @return LiveData list of the events that conflict with it, ordered by start time
+     */
+    public LiveData<List<Event>> getConflictsWith(Event event) {
+        MutableLiveData<List<Event>> result = new MutableLiveData<>();
+        Event copy = new Event();
+        copy.id = event.id;
+        copy.startTime = new Date(event.startTime.getTime());
+        copy.endTime = event.endTime == null ? null : new Date(event.endTime.getTime());
+        if (copy.endTime == null) {
+            result.setValue(Collections.emptyList()); // an assignment never conflicts
+            return result;
+        }
+        readers.execute(() -> {
+            long started = startTiming();
+            long start = copy.startTime.getTime(), end = copy.endTime.getTime();
+            List<Event> events = loadRange(start, end);
+            List<Event> conflicts = ConflictDetector.findConflictsWith(copy, events);
+            record(RepositoryMetrics.Operation.CONFLICT_QUERY, started, events.size());
+            result.postValue(conflicts);
+        });
+        return result;
+    }
+
+    /**
+     * public method for getting all events that overlap the day containing the given date, from midnight to
+     * midnight in the current time zone. Recently used days are answered from memory. The previous and next days
+     * are loaded in the background so they are ready if the user moves to them.
      * @param date Date to get the events of
-     * @return LiveData list of events from that day
+     * @return LiveData list of events from that day, ordered by start time
      */
     public LiveData<List<Event>> getEventsOnDay(Date date){
-        return calendarDao.getEventsOnDay(date);
+        long day = DateUtils.toEpochDay(date.getTime());
+        readers.execute(() -> {
+            loadDay(day - 1);
+            loadDay(day + 1);
+        });
+        RequeryCounter requeries = new RequeryCounter(RepositoryMetrics.Operation.DAY_QUERY);
+        return Transformations.switchMap(indexVersion, version -> {
+            requeries.count();
+            MutableLiveData<List<Event>> result = new MutableLiveData<>();
+            List<Event> cached = dayCache.get(day);
+            if (cached != null) {
+                result.setValue(cached);
+            } else {
+                readers.execute(() -> result.postValue(loadDay(day)));
+            }
+            return result;
+        });
     }
 
     /**
-     * public method for accessing addEvent() in CalendarDao to add an event to the database using background thread
-     * @param event event to add to the Database
+     * public method for getting how busy each day of a month is: the number of events on each day (an event that
+     * spans several days counts on each of them) and the most common type of event on it, for decorating the days of
+     * a calendar. The first time a month is asked for it takes one query, after that it is kept in memory and writes
+     * adjust the counts of just the days they touch.
+     * @param year the year (e.g. 2021)
+     * @param month the month (1-12)
+     * @return LiveData list of the density of each day of the month that has events, in order
      */
+    public LiveData<List<DayDensity>> getMonthDensity(int year, int month) {
+        long firstDay = DateUtils.epochDayFromCivil(year, month, 1);
+        long lastDay = (month == 12 ? DateUtils.epochDayFromCivil(year + 1, 1, 1) :
+                DateUtils.epochDayFromCivil(year, month + 1, 1)) - 1;
+        RequeryCounter requeries = new RequeryCounter(RepositoryMetrics.Operation.DENSITY_QUERY);
+        return Transformations.switchMap(indexVersion, version -> {
+            requeries.count();
+            MutableLiveData<List<DayDensity>> result = new MutableLiveData<>();
+            List<DayDensity> cached = densityTable.getMonth(firstDay, lastDay);
+            if (cached != null) {
+                result.setValue(cached);
+            } else {
+                readers.execute(() -> result.postValue(loadMonthDensity(firstDay, lastDay)));
+            }
+            return result;
+        });
+    }
 
+    /**
+     * Counts the events of each type on each day of a month, an event counting on every day it covers, and stores the
+     * counts in the density table. Must be run on a reader thread.
+     * @param firstDay the local epoch-day of the first day of the month
+     * @param lastDay the local epoch-day of the last day of the month
+     * @return the density of each day of the month that has events, in order
+     */
+    private List<DayDensity> loadMonthDensity(long firstDay, long lastDay) {
+        long started = startTiming();
+        long generation = densityTable.getGeneration();
+        List<DayTypeCount> rows = new ArrayList<>(calendarDao.getDayTypeCounts(firstDay, lastDay));
+        // repeating events are counted once for each occurrence
+        long start = DateUtils.startOfEpochDay(firstDay), end = DateUtils.startOfEpochDay(lastDay + 1);
+        for (Event occurrence : RecurrenceRule.expand(calendarDao.getRepeatingEventsBefore(end), start, end)) {
+            setDerivedColumns(occurrence);
+            DayTypeCount row = new DayTypeCount();
+            row.startDay = occurrence.startDay;
+            row.endDay = occurrence.endDay;
+            row.type = occurrence.type;
+            row.count = 1;
+            rows.add(row);
+        }
+        List<DayDensity> densities = densityTable.putMonth(firstDay, lastDay, rows, generation);
+        if (started != 0) {
+            int events = 0;
+            for (DayTypeCount row : rows) { events += row.count; }
+            record(RepositoryMetrics.Operation.DENSITY_QUERY, started, events);
+        }
+        return densities;
+    }
+
+    /**
+     * Adjusts the density table for a batch of writes. Must be run on the writer thread after the batch is committed.
+     * @param previous the removed and updated events as they were before the batch
+     * @param batch the writes that were made
+     */
+    private void updateDensity(List<Event> previous, Batch batch) {
+        for (List<Event> events : Arrays.asList(previous, batch.added, batch.updated)) {
+            for (Event event : events) {
+                if (event.recurrence != null) {
+                    // the occurrences could be on any day of any month
+                    densityTable.clear();
+                    return;
+                }
+            }
+        }
+        for (Event event : previous) { densityTable.adjust(event.startDay, event.endDay, event.type, -1); }
+        for (Event event : batch.added) { densityTable.adjust(event.startDay, event.endDay, event.type, 1); }
+        for (Event event : batch.updated) { densityTable.adjust(event.startDay, event.endDay, event.type, 1); }
+    }
+
+    /**
+     * Gets the events on a local epoch-day, from the cache if possible otherwise from the database (and then
+     * caching them). Must be run on a reader thread.
+     * @param day the local epoch-day
+     * @return unmodifiable list of the events on that day, ordered by start time
+     */
+    private List<Event> loadDay(long day) {
+        List<Event> events = dayCache.get(day);
+        if (events == null) {
+            long started = startTiming();
+            long generation;
+            synchronized (dayCache) { generation = cacheGeneration; }
+            long start = DateUtils.startOfEpochDay(day), end = DateUtils.startOfEpochDay(day + 1);
+            events = Collections.unmodifiableList(loadRange(start, end));
+            synchronized (dayCache) {
+                if (generation == cacheGeneration) { dayCache.put(day, events); }
+            }
+            record(RepositoryMetrics.Operation.DAY_QUERY, started, events.size());
+        }
+        return events;
+    }
+
+    /**
+     * Removes every cached day that the event covers. Must be run on the writer thread holding the lock on dayCache.
+     * @param start the start time of the event in milliseconds
+     * @param end the end time of the event in milliseconds
+     */
+    private void evictDays(long start, long end) {
+        if (end == Long.MAX_VALUE) {
+            // a repeating event that never ends
+            dayCache.evictAll();
+            return;
+        }
+        long first = DateUtils.toEpochDay(start), last = DateUtils.toEpochDay(Math.max(start, end));
+        if (last - first >= DAY_CACHE_SIZE) {
+            dayCache.evictAll();
+            return;
+        }
+        for (long day = first; day <= last; day++) { dayCache.remove(day); }
+    }
+
+    /**
+     * Removes every cached day that the event covers, both before and after it is written. Must be run on the
+     * writer thread holding the lock on dayCache, before the index is updated.
+     * @param event the event being written
+     */
+    private void evictDays(Event event) {
+        if (intervalIndex.contains(event.id)) {
+            evictDays(intervalIndex.getStart(event.id), intervalIndex.getEnd(event.id));
+        }
+        if (event.recurrence != null) {
+            // the occurrences could be on any of the cached days
+            dayCache.evictAll();
+            return;
+        }
+        long start = event.startTime.getTime();
+        evictDays(start, event.endTime == null ? start : event.endTime.getTime());
+    }
+
+    /**
+     * public method for adding an event to the database using background thread. The write is queued and committed
+     * together with any other pending writes.
+     * @param event event to add to the Database
+     */
     public void addEvent(Event event){
-        executor.execute(() ->{
-            calendarDao.addEvent(event);
-        });
+        writeQueue.add(event);
     }
     /**
-     * public method for accessing updateEvent() in CalendarDao to update an event in the database using background thread
+     * public method for updating an event in the database using background thread. If there is already a pending
+     * write for the event it is replaced by this one.
      * @param event event to update within the Database
      */
     public void updateEvent(Event event){
-        executor.execute(() -> {
-            calendarDao.updateEvent(event);
-        });
+        writeQueue.update(event);
     }
     /**
-     * public method for accessing removeEvent() in CalendarDao to remove an event in the database using background thread
+     * public method for removing an event in the database using background thread. If the event was added but not
+     * yet committed then nothing is written at all.
      * @param event event to removed within the Database
      */
     public void removeEvent(Event event){
-        executor.execute(() ->{
-            calendarDao.removeEvent(event);
+        writeQueue.remove(event);
+    }
+
+    /**
+     * public method for removing a single occurrence of a repeating event, for example one week of a lab, using
+     * background thread. The occurrence's start time is added to the excluded dates of the series and the series is
+     * updated, the rest of the series is kept. This is run after any writes already queued have been committed so it
+     * starts from the latest version of the series.
+     * @param occurrence the occurrence to remove, as returned by getEventsOnDay() or getEventsBetween()
+     */
+    public void removeOccurrence(Event occurrence){
+        long start = occurrence.startTime.getTime();
+        writer.execute(() -> {
+            List<Event> found = calendarDao.getEventsByIds(Collections.singletonList(occurrence.id));
+            if (found.isEmpty() || found.get(0).recurrence == null) { return; }
+            Event series = found.get(0);
+            series.excludedDates = series.excludedDates == null || series.excludedDates.isEmpty() ?
+                    Long.toString(start) : series.excludedDates + ',' + start;
+            writeQueue.update(series);
+        });
+    }
+
+    /**
+     * Called when the device's time zone changes. The stored days of the events are recomputed and the cached days
+     * are dropped since the days now start and end at different times.
+     */
+    public void onTimeZoneChanged() {
+        writer.execute(() -> {
+            refreshDays(calendarDao.getAllIntervals());
+            synchronized (dayCache) {
+                cacheGeneration++;
+                dayCache.evictAll();
+            }
+            densityTable.clear();
+            indexChanged();
         });
     }
+
+    /**
+     * @return the number of events with writes queued but not yet committed to the database
+     */
+    public int getPendingWriteCount() { return writeQueue.size(); }
+
+    /**
+     * A group of writes that are committed to the database together in a single transaction. Build one up with
+     * add(), update(), and remove() and then give it to runInTransaction().
+     */
+    public static class Batch {
+        private final List<Event> added = new ArrayList<>();
+        private final List<Event> updated = new ArrayList<>();
+        private final List<Event> removed = new ArrayList<>();
+
+        /**
+         * @param event event to add to the database as part of this batch
+         * @return this batch
+         */
+        public Batch add(Event event) { added.add(event); return this; }
+
+        /**
+         * @param events events to add to the database as part of this batch
+         * @return this batch
+         */
+        public Batch addAll(Collection<Event> events) { added.addAll(events); return this; }
+
+        /**
+         * @param event event to update in the database as part of this batch
+         * @return this batch
+         */
+        public Batch update(Event event) { updated.add(event); return this; }
+
+        /**
+         * @param events events to update in the database as part of this batch
+         * @return this batch
+         */
+        public Batch updateAll(Collection<Event> events) { updated.addAll(events); return this; }
+
+        /**
+         * @param event event to remove from the database as part of this batch
+         * @return this batch
+         */
+        public Batch remove(Event event) { removed.add(event); return this; }
+
+        /**
+         * @param events events to remove from the database as part of this batch
+         * @return this batch
+         */
+        public Batch removeAll(Collection<Event> events) { removed.addAll(events); return this; }
+
+        /**
+         * @return true if there are no writes in this batch
+         */
+        public boolean isEmpty() { return added.isEmpty() && updated.isEmpty() && removed.isEmpty(); }
+    }
+
+    /**
+     * Commits all of the writes in the batch to the database in a single transaction using the background thread.
+     * Either all of the writes are committed or none of them are. The writes are merged into the write queue so they
+     * may be committed in the same transaction as other pending writes.
+     * @param batch the writes to make
+     * @return a future that completes once the transaction has been committed (or failed)
+     */
+    public Future<?> runInTransaction(Batch batch) {
+        return writeQueue.queueAll(batch.removed, batch.added, batch.updated);
+    }
+
+    /**
+     * public method for adding many events to the database in a single transaction using background thread
+     * @param events events to add to the Database
+     * @return a future that completes once the events have been committed
+     */
+    public Future<?> addEvents(List<Event> events) { return runInTransaction(new Batch().addAll(events)); }
+
+    /**
+     * public method for updating many events in the database in a single transaction using background thread
+     * @param events events to update within the Database
+     * @return a future that completes once the events have been committed
+     */
+    public Future<?> updateEvents(List<Event> events) { return runInTransaction(new Batch().updateAll(events)); }
+
+    /**
+     * public method for removing many events from the database in a single transaction using background thread
+     * @param events events to remove from the Database
+     * @return a future that completes once the events have been committed
+     */
+    public Future<?> removeEvents(List<Event> events) { return runInTransaction(new Batch().removeAll(events)); }
+
+    /**
+     * Commits a micro-batch from the write queue. Callers of addEvent() and the like never see the future of the
+     * batch, so a failure is logged here or every write merged into the batch would be lost without a trace. It is
+     * still rethrown so the futures of callers that do wait fail too. Must be run on the writer thread.
+     * @param batch the writes to make
+     */
+    private void flushBatch(Batch batch) {
+        try {
+            applyBatch(batch);
+        } catch (RuntimeException ex) {
+            Log.e(TAG, "Failed to commit " + (batch.removed.size() + batch.added.size() + batch.updated.size()) +
+                    " writes, they have been lost", ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the batch to the database in one transaction and then updates the index. Must be run on the writer
+     * thread.
+     * @param batch the writes to make
+     */
+    private void applyBatch(Batch batch) {
+        if (batch.isEmpty()) { return; }
+        long start = startTiming();
+        List<Event> previous = null;
+        if (densityTable.startWrite()) {
+            // the old versions are needed to know which day counts to take them off of
+            List<UUID> ids = new ArrayList<>();
+            for (Event event : batch.removed) { ids.add(event.id); }
+            for (Event event : batch.updated) { ids.add(event.id); }
+            previous = loadEvents(calendarDao, ids);
+        }
+        for (Event event : batch.added) { setDerivedColumns(event); }
+        for (Event event : batch.updated) { setDerivedColumns(event); }
+        try {
+            database.runInTransaction(() -> {
+                if (!batch.removed.isEmpty()) { calendarDao.removeEvents(batch.removed); }
+                if (!batch.added.isEmpty()) { calendarDao.addEvents(batch.added); }
+                if (!batch.updated.isEmpty()) { calendarDao.updateEvents(batch.updated); }
+            });
+            if (previous != null) { updateDensity(previous, batch); }
+        } finally {
+            densityTable.finishWrite();
+        }
+        synchronized (dayCache) {
+            cacheGeneration++;
+            for (Event event : batch.removed) { evictDays(event); }
+            for (Event event : batch.added) { evictDays(event); }
+            for (Event event : batch.updated) { evictDays(event); }
+            for (Event event : batch.removed) { intervalIndex.remove(event.id); }
+            for (Event event : batch.added) { intervalIndex.put(event); }
+            for (Event event : batch.updated) { intervalIndex.put(event); }
+        }
+        record(RepositoryMetrics.Operation.WRITE_BATCH, start, batch.removed.size() + batch.added.size() + batch.updated.size());
+        indexChanged();
+    }
+
+    /**
+     * Receives the progress of an import or export, on the thread doing the import or export.
+     */
+    public interface TransferListener {
+        /**
+         * @param events the number of events imported or exported so far
+         */
+        void onProgress(int events);
+    }
+
+    /**
+     * How many events an import added or updated and how many it had to leave out.
+     */
+    public static class ImportResult {
+        /**
+         * The number of events added or updated.
+         */
+        public final int imported;
+        /**
+         * The number of events in the file that could not be read (such as ones missing a start time) or are not
+         * supported (changes to a single occurrence of a repeating event), and so were left out.
+         */
+        public final int skipped;
+
+        ImportResult(int imported, int skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
+    /**
+     * public method for importing the events in an iCalendar (.ics) file. The file is read one event at a time and
+     * the events are committed in fixed-size transactions, waiting for each to commit before reading more, so files
+     * of any size can be imported in constant memory. Events that are already in the calendar (with the same UID) are
+     * updated instead of added again. See IcsReader for how the file is mapped to events.
+     * @param reader where to read the iCalendar text from, closed when done
+     * @param listener told the number of events imported after each transaction, may be null
+     * @return a future with the number of events imported and skipped
+     */
+    public Future<ImportResult> importIcs(Reader reader, TransferListener listener) {
+        return transferExecutor.submit(() -> {
+            FutureTask<Void> indexLoaded = new FutureTask<>(() -> { }, null);
+            writer.execute(indexLoaded); // runs after the index has been loaded
+            indexLoaded.get();
+            int count = 0;
+            try (IcsReader ics = new IcsReader(reader)) {
+                Batch batch = new Batch();
+                int size = 0;
+                Event event;
+                while ((event = ics.next()) != null || size > 0) {
+                    if (event != null) {
+                        if (intervalIndex.contains(event.id)) { batch.update(event); } else { batch.add(event); }
+                        if (++size < TRANSFER_BATCH_SIZE) { continue; }
+                    }
+                    runInTransaction(batch).get();
+                    count += size;
+                    if (listener != null) { listener.onProgress(count); }
+                    batch = new Batch();
+                    size = 0;
+                }
+                return new ImportResult(count, ics.getSkippedCount());
+            }
+        });
+    }
+
+    /**
+     * public method for exporting every event to an iCalendar (.ics) file. The events are read from the database a
+     * page at a time in order of start time, so any number of events can be exported in constant memory. Events
+     * written during the export may or may not be included.
+     * @param writer where to write the iCalendar text to, closed when done
+     * @param listener told the number of events exported after each page, may be null
+     * @return a future with the number of events exported
+     */
+    public Future<Integer> exportIcs(Writer writer, TransferListener listener) {
+        return transferExecutor.submit(() -> {
+            int count = 0;
+            try (IcsWriter ics = new IcsWriter(writer)) {
+                long startTime = Long.MIN_VALUE;
+                UUID id = new UUID(0, 0);
+                List<Event> page;
+                while (!(page = calendarDao.getEventsAfter(startTime, id, TRANSFER_BATCH_SIZE)).isEmpty()) {
+                    for (Event event : page) { ics.write(event); }
+                    count += page.size();
+                    if (listener != null) { listener.onProgress(count); }
+                    Event last = page.get(page.size() - 1);
+                    startTime = last.startTime.getTime();
+                    id = last.id;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * public method for saving every event to a binary snapshot file (see SnapshotWriter), which is much smaller and
+     * faster to write and read than an iCalendar file and keeps everything about the events. The snapshot is exactly
+     * the calendar at one moment while writes carry on as usual: the events are read on a separate read-only
+     * connection to the database inside a read transaction, which pins the WAL snapshot the first read sees until it
+     * ends, and a reader never blocks the writer in WAL mode. (Room's own connections can't be used since any
+     * transaction on them holds the one connection that writes.) The connection is opened with just one connection so
+     * every refill of the cursor runs on it, and the transaction is started with SAVEPOINT since Android turns BEGIN
+     * into an exclusive transaction, which would take the write lock. The events are decoded a row at a time so any
+     * number are exported in constant memory. The snapshot is written to a temporary file that only replaces the given
+     * file once it is complete.
+     * @param file the file to save the snapshot to
+     * @param listener told the number of events exported after each SNAPSHOT_BATCH_SIZE events, may be null
+     * @return a future with the number of events exported
+     */
+    public Future<Integer> exportSnapshot(File file, TransferListener listener) {
+        return transferExecutor.submit(() -> {
+            File temp = new File(file.getPath() + ".tmp");
+            String path = database.getOpenHelper().getReadableDatabase().getPath();
+            int count;
+            try (SnapshotWriter snapshot = new SnapshotWriter(new FileOutputStream(temp).getChannel());
+                 SQLiteDatabase reader = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY)) {
+                reader.execSQL("SAVEPOINT export");
+                try (Cursor cursor = reader.rawQuery("SELECT * FROM event ORDER BY startTime, id", null)) {
+                    int idColumn = cursor.getColumnIndexOrThrow("id");
+                    int startTimeColumn = cursor.getColumnIndexOrThrow("startTime");
+                    int endTimeColumn = cursor.getColumnIndexOrThrow("endTime");
+                    int nameColumn = cursor.getColumnIndexOrThrow("name");
+                    int typeColumn = cursor.getColumnIndexOrThrow("type");
+                    int descriptionColumn = cursor.getColumnIndexOrThrow("description");
+                    int recurrenceColumn = cursor.getColumnIndexOrThrow("recurrence");
+                    int excludedDatesColumn = cursor.getColumnIndexOrThrow("excludedDates");
+                    while (cursor.moveToNext()) {
+                        Event event = new Event();
+                        event.id = CalendarTypeConverter.bytesToUUID(cursor.getBlob(idColumn));
+                        event.startTime = new Date(cursor.getLong(startTimeColumn));
+                        event.endTime = cursor.isNull(endTimeColumn) ? null : new Date(cursor.getLong(endTimeColumn));
+                        event.name = cursor.getString(nameColumn);
+                        event.type = EventType.fromCode(cursor.getInt(typeColumn));
+                        event.description = cursor.getString(descriptionColumn);
+                        event.recurrence = cursor.getString(recurrenceColumn);
+                        event.excludedDates = cursor.getString(excludedDatesColumn);
+                        snapshot.write(event);
+                        if (listener != null && snapshot.getCount() % SNAPSHOT_BATCH_SIZE == 0) {
+                            listener.onProgress(snapshot.getCount());
+                        }
+                    }
+                } finally {
+                    reader.execSQL("RELEASE export");
+                }
+                count = snapshot.getCount();
+                snapshot.finish();
+            } catch (Exception ex) {
+                temp.delete();
+                throw ex;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not replace " + file);
+            }
+            if (listener != null) { listener.onProgress(count); }
+            return count;
+        });
+    }
+
+    /**
+     * public method for replacing every event with those in a binary snapshot file written by exportSnapshot(). The
+     * whole file is decoded first, every field of every event, so a corrupt or partial snapshot (or one with an event
+     * type this version does not know) is rejected without changing anything. Then all events are removed and the
+     * events in the snapshot are read again one at a time and committed in fixed-size transactions, waiting for each
+     * to commit before reading more, so a snapshot of any size is restored in constant memory.
+     *
+     * The restore is not atomic: if it stops part way (the file is changed between the two passes, the storage fills
+     * up, or the app is killed) the calendar is left with only the events restored so far. Restoring the same
+     * snapshot again finishes the job.
+     * @param file the snapshot file to restore
+     * @param listener told the number of events restored after each transaction, may be null
+     * @return a future with the number of events restored
+     */
+    public Future<Integer> restoreSnapshot(File file, TransferListener listener) {
+        return transferExecutor.submit(() -> {
+            try (SnapshotReader snapshot = new SnapshotReader(new FileInputStream(file).getChannel())) {
+                while (snapshot.next() != null) { }
+            }
+            FutureTask<Void> cleared = new FutureTask<>(this::clearEvents, null);
+            writer.execute(cleared);
+            cleared.get();
+            int count = 0;
+            try (SnapshotReader snapshot = new SnapshotReader(new FileInputStream(file).getChannel())) {
+                Batch batch = new Batch();
+                int size = 0;
+                Event event;
+                while ((event = snapshot.next()) != null || size > 0) {
+                    if (event != null) {
+                        // an event added since the calendar was cleared is replaced by the one in the snapshot
+                        if (intervalIndex.contains(event.id)) { batch.update(event); } else { batch.add(event); }
+                        if (++size < SNAPSHOT_BATCH_SIZE) { continue; }
+                    }
+                    runInTransaction(batch).get();
+                    count += size;
+                    if (listener != null) { listener.onProgress(count); }
+                    batch = new Batch();
+                    size = 0;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Removes every event from the database and then reloads the (now empty) index. Must be run on the writer
+     * thread.
+     */
+    private void clearEvents() {
+        database.runInTransaction(calendarDao::removeAllEvents);
+        loadIndex();
+    }
+
     // Creating the single instance of the repository to ensure singleton format
     private static CalendarRepository INSTANCE;
     /**
@@ -115,8 +1141,21 @@ public class CalendarRepository {
      * @param context context used to pass as argument for repository constructor, for this project context is CalendarApplication
      */
     public static void initialize(Context context) {
+        initialize(context, Executors.newFixedThreadPool(READER_COUNT), Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * method used to initialize the repository for database with the given executors instead of the default ones (a
+     * pool of threads for reading and a single thread for writing), for example to run everything on the calling
+     * thread in tests.
+     *
+     * @param context context used to pass as argument for repository constructor, for this project context is CalendarApplication
+     * @param readExecutor the executor to run queries on
+     * @param writeExecutor the executor to run writes on, it must run tasks one at a time in the order given
+     */
+    public static void initialize(Context context, Executor readExecutor, Executor writeExecutor) {
         if (INSTANCE == null) {
-            INSTANCE = new CalendarRepository(context);
+            INSTANCE = new CalendarRepository(context, readExecutor, writeExecutor);
         }
     }
 }
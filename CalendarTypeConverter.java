@@ -7,24 +7,63 @@ import java.util.UUID;
 public class CalendarTypeConverter {
 
 
+    /**
+     * UUIDs are stored as 16-byte blobs (most significant byte first) instead of 36-character strings which keeps
+     * the table and its primary key index small and avoids parsing a string for every row read.
+     */
     @TypeConverter
-    public String fromUUID(UUID uuid) {
-        return uuid.toString();
+    public byte[] fromUUID(UUID uuid) {
+        return uuidToBytes(uuid);
     }
 
     @TypeConverter
-    public UUID toUUID(String id) {
-        return UUID.fromString(id);
+    public UUID toUUID(byte[] id) {
+        return bytesToUUID(id);
     }
 
+    /**
+     * Converts a UUID into its 16 bytes, most significant byte first.
+     * @param uuid the UUID to convert
+     * @return the 16 bytes of the UUID
+     */
+    public static byte[] uuidToBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits(), lsb = uuid.getLeastSignificantBits();
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) msb;
+            bytes[i + 8] = (byte) lsb;
+            msb >>>= 8;
+            lsb >>>= 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * Converts 16 bytes, most significant byte first, back into a UUID.
+     * @param bytes the 16 bytes of the UUID
+     * @return the UUID
+     */
+    public static UUID bytesToUUID(byte[] bytes) {
+        long msb = 0, lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Event types are stored as their small integer code (see EventType.code) so decoding is an array lookup and
+     * filtering by type is an integer comparison.
+     */
     @TypeConverter
-    public EventType toEventType(String name) {
-        return EventType.valueOf(name);
+    public EventType toEventType(int code) {
+        return EventType.fromCode(code);
     }
 
     @TypeConverter
-    public String fromEventType(EventType eventType) {
-        return eventType.name();
+    public int fromEventType(EventType eventType) {
+        return eventType.code;
     }
 
     @TypeConverter
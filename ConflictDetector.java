@@ -0,0 +1,75 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds events that overlap each other. Two events conflict if one starts before the other ends, so
+ * an event ending exactly when another starts is not a conflict. Assignments (events without an end
+ * time) and events that end when they start take no time and never conflict with anything.
+ */
+public class ConflictDetector {
+    private ConflictDetector() { }
+
+    /**
+     * Finds the groups of conflicting events among the given events with a single sweep over them in
+     * order of start time, so this takes O(n log n) time (O(n) if the events are already sorted).
+     * Events are in the same group if they overlap each other or are linked by a chain of overlapping
+     * events, for example a lab overlapping the end of one class and the start of the next puts all
+     * three in one group.
+     * @param events the events to check, for example all of the events on a day
+     * @return the groups of two or more conflicting events, each ordered by start time, with the
+     *         groups in order of their first event
+     */
+    public static List<List<Event>> findConflicts(List<Event> events) {
+        List<Event> timed = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (takesTime(event)) { timed.add(event); }
+        }
+        Collections.sort(timed, Comparator.comparingLong(event -> event.startTime.getTime()));
+        List<List<Event>> groups = new ArrayList<>();
+        List<Event> group = null;
+        long groupEnd = Long.MIN_VALUE; // the latest end of the events in the current group
+        for (Event event : timed) {
+            if (group != null && event.startTime.getTime() < groupEnd) {
+                group.add(event);
+            } else {
+                if (group != null && group.size() > 1) { groups.add(group); }
+                group = new ArrayList<>();
+                group.add(event);
+            }
+            groupEnd = Math.max(groupEnd, event.endTime.getTime());
+        }
+        if (group != null && group.size() > 1) { groups.add(group); }
+        return groups;
+    }
+
+    /**
+     * Finds which of the given events conflict with a single event. Only the events around the event
+     * need to be given (such as those the interval index finds overlapping it), not all of them.
+     * @param event the event to check
+     * @param others events that might conflict with it, any with the same id as the event are ignored
+     * @return the events that conflict with the event, in the same order as they were given
+     */
+    public static List<Event> findConflictsWith(Event event, List<Event> others) {
+        List<Event> conflicts = new ArrayList<>();
+        if (!takesTime(event)) { return conflicts; }
+        long start = event.startTime.getTime(), end = event.endTime.getTime();
+        for (Event other : others) {
+            if (!other.id.equals(event.id) && takesTime(other) &&
+                    other.startTime.getTime() < end && other.endTime.getTime() > start) {
+                conflicts.add(other);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * @return true if the event has an end time after its start time
+     */
+    private static boolean takesTime(Event event) {
+        return event.endTime != null && event.endTime.getTime() > event.startTime.getTime();
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Locale;
+import java.util.TimeZone;
 
 /**
  * This class provides a ton a static utility functions for working with Date
@@ -21,25 +22,69 @@ import java.util.Locale;
  * Java class and not specific date or time. Lowercase date refers to just a
  * date (year, month, and day). The phrase date/time refers to having/using
  * both the date and time of a Date object.
+ *
+ * All of the functions here are safe to call from any thread at the same time. The textual
+ * versions of dates and times are built directly from the day and minute numbers instead of going
+ * through a shared SimpleDateFormat (which is not thread-safe).
+ *
+ * Most functions also have a version that works on a date/time given as a long number of
+ * milliseconds since the epoch (like Date.getTime()) instead of a Date object. These do not create
+ * any objects so they are best for code that runs over many events like sorting, grouping by day,
+ * or checking for overlaps. The Date versions just call them. Offsets of the current time zone are
+ * cached per day (see TimeZoneOffsetCache), so onTimeZoneChanged() must be called whenever the
+ * default time zone changes.
  */
 public class DateUtils {
     /**
      * Formatter to convert Date objects to textual dates like "Thursday April 1, 2021". Includes
      * the weekday. Ignores any time.
+     * @deprecated SimpleDateFormat is not thread-safe, use toFullDateString() instead
      */
+    @Deprecated
     public static final SimpleDateFormat fullDateFormat = new SimpleDateFormat("EEEE MMMM d, yyyy", Locale.US);
 
     /**
      * Formatter to convert Date objects to textual dates like "April 1, 2021". Does not include the
      * weekday. Ignores any time.
+     * @deprecated SimpleDateFormat is not thread-safe, use toDateString() instead
      */
+    @Deprecated
     public static final SimpleDateFormat dateFormat = new SimpleDateFormat("MMMM d, yyyy", Locale.US);
 
     /**
      * Formatter for converting Date objects to textual times like "3:42 pm". Ignores any date.
+     * @deprecated SimpleDateFormat is not thread-safe, use toTimeString() instead
      */
+    @Deprecated
     public static final SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a", Locale.US);
 
+    /**
+     * The names of the days of the week, starting with Sunday.
+     */
+    private static final String[] DAY_NAMES = {
+            "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday"
+    };
+
+    /**
+     * The names of the months, starting with January.
+     */
+    private static final String[] MONTH_NAMES = {
+            "January", "February", "March", "April", "May", "June",
+            "July", "August", "September", "October", "November", "December"
+    };
+
+    /**
+     * The textual time for every minute of the day, so that "3:42 PM" is TIME_STRINGS[15*60+42].
+     */
+    private static final String[] TIME_STRINGS = new String[24*60];
+    static {
+        for (int minute = 0; minute < TIME_STRINGS.length; minute++) {
+            int hour = minute / 60 % 12;
+            TIME_STRINGS[minute] = (hour == 0 ? 12 : hour) + (minute % 60 < 10 ? ":0" : ":") + minute % 60 +
+                    (minute < 12*60 ? " AM" : " PM");
+        }
+    }
+
     /**
      * Returns the given date/time or the current date/time if the given Date is null.
      * @param date the date/time to return (or null to return the current date/time)
@@ -68,9 +113,9 @@ public class DateUtils {
      * @return an array of the year, month, and day from that Date
      */
     public static int[] getYearMonthDay(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        return new int[]{cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH)};
+        int[] ymd = civilFromEpochDay(toEpochDay(date.getTime()));
+        ymd[1]--; // Calendar months start at 0
+        return ymd;
     }
 
     /**
@@ -93,9 +138,8 @@ public class DateUtils {
      * @return an array of the hour and minute from that Date
      */
     public static int[] getHourMinute(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        return new int[]{cal.get(Calendar.HOUR), cal.get(Calendar.MINUTE)};
+        int minute = getMinuteOfDay(date.getTime());
+        return new int[]{minute / 60 % 12, minute % 60};
     }
 
     /**
@@ -108,17 +152,7 @@ public class DateUtils {
      */
     @NonNull
     public static Date combineDateAndTime(Date date, Date time) {
-        Calendar calDate = Calendar.getInstance(), calTime = Calendar.getInstance();
-        calDate.setTime(date);
-        calTime.setTime(time);
-        return new GregorianCalendar(
-                calDate.get(Calendar.YEAR),
-                calDate.get(Calendar.MONTH),
-                calDate.get(Calendar.DAY_OF_MONTH),
-                calTime.get(Calendar.HOUR_OF_DAY),
-                calTime.get(Calendar.MINUTE),
-                calTime.get(Calendar.SECOND)
-                ).getTime();
+        return new Date(combineDateAndTime(date.getTime(), time.getTime()));
     }
 
     /**
@@ -147,16 +181,198 @@ public class DateUtils {
      * @return the adjusted end Date (or possibly the same end Date if no adjustment needed)
      */
     public static Date fixEndTime(Date start, Date end) {
-        end = combineDateAndTime(start, end);
-        if (end.before(start)) {
+        long fixed = fixEndTime(start.getTime(), end.getTime());
+        return fixed == end.getTime() ? end : new Date(fixed);
+    }
+
+    ///// Versions using milliseconds since the epoch /////
+
+    /**
+     * The number of milliseconds in a day without any daylight saving time changes.
+     */
+    public static final long DAY_MS = 24*60*60*1000;
+
+    // offsets of the current default time zone
+    private static volatile TimeZoneOffsetCache offsets = new TimeZoneOffsetCache(TimeZone.getDefault());
+
+    /**
+     * Must be called whenever the default time zone changes so that the cached offsets of the old
+     * time zone are no longer used.
+     */
+    public static void onTimeZoneChanged() {
+        offsets = new TimeZoneOffsetCache(TimeZone.getDefault());
+    }
+
+    /**
+     * Gets the offset of the current time zone from UTC at a date/time.
+     * @param millis the date/time in milliseconds
+     * @return the offset in milliseconds to add to the date/time to get the local time
+     */
+    public static int getOffset(long millis) {
+        return offsets.getOffset(millis);
+    }
+
+    /**
+     * Converts a local date/time (the number of milliseconds since midnight January 1, 1970 on the
+     * wall clock of the current time zone) into an actual date/time. This matches a lenient
+     * Calendar: if the local time happens twice (when clocks are turned back) the later, standard
+     * time, one is used and if it was skipped (when clocks are turned forward) it is moved forward
+     * by the length of the skip.
+     * @param local the local date/time
+     * @return the date/time in milliseconds
+     */
+    public static long fromLocalMillis(long local) {
+        TimeZoneOffsetCache offsets = DateUtils.offsets;
+        int before = offsets.getOffset(local - DAY_MS), after = offsets.getOffset(local + DAY_MS);
+        if (before == after) {
+            return local - offsets.getOffset(local - before);
+        }
+        // the offset changes near this time, so try the smaller (standard) offset and then the larger
+        int standard = Math.min(before, after), daylight = Math.max(before, after);
+        if (offsets.getOffset(local - standard) == standard) { return local - standard; }
+        if (offsets.getOffset(local - daylight) == daylight) { return local - daylight; }
+        return local - standard; // skipped
+    }
+
+    /**
+     * Gets the local epoch-day of a date/time, the number of days since January 1, 1970 in the
+     * current time zone. This makes a good key for a day since it is just a number.
+     * @param millis the date/time in milliseconds
+     * @return the number of the day containing that date/time
+     */
+    public static long toEpochDay(long millis) {
+        return Math.floorDiv(millis + getOffset(millis), DAY_MS);
+    }
+
+    /**
+     * Gets the local epoch-day an event ends on, the day of its last moment, so an event ending at
+     * midnight ends on the day before instead of reaching into the next day.
+     * @param start the start date/time of the event in milliseconds
+     * @param end the end date/time of the event in milliseconds, the same as start if it has no end
+     * @return the number of the last day the event is on, never before the day it starts on
+     */
+    public static long toEndEpochDay(long start, long end) {
+        return toEpochDay(end > start ? end - 1 : start);
+    }
+
+    /**
+     * Gets the date/time of the start of the day containing a date/time.
+     * @param millis the date/time in milliseconds
+     * @return the date/time in milliseconds of the start of that day in the current time zone
+     */
+    public static long startOfDay(long millis) {
+        return startOfEpochDay(toEpochDay(millis));
+    }
+
+    /**
+     * Gets the day of the week of a date/time.
+     * @param millis the date/time in milliseconds
+     * @return the day of the week, matching Calendar.SUNDAY (1) to Calendar.SATURDAY (7)
+     */
+    public static int getDayOfWeek(long millis) {
+        return (int) Math.floorMod(toEpochDay(millis) + 4, 7) + Calendar.SUNDAY; // day 0 was a Thursday
+    }
+
+    /**
+     * Gets the time since midnight of a date/time in the current time zone.
+     * @param millis the date/time in milliseconds
+     * @return the number of milliseconds since the start of the local day
+     */
+    public static long getMillisOfDay(long millis) {
+        return Math.floorMod(millis + getOffset(millis), DAY_MS);
+    }
+
+    /**
+     * Gets the date/time with the date of the first argument and the time of the second argument,
+     * to the second. See combineDateAndTime(Date, Date).
+     * @param date the date/time in milliseconds to use for the date portion
+     * @param time the date/time in milliseconds to use for the time portion
+     * @return the date/time in milliseconds that is the combination of the arguments given
+     */
+    public static long combineDateAndTime(long date, long time) {
+        long timeOfDay = getMillisOfDay(time) / 1000 * 1000;
+        return fromLocalMillis(toEpochDay(date) * DAY_MS + timeOfDay);
+    }
+
+    /**
+     * Fixes the end time so that it comes after the given start time and at most 24 hours after it.
+     * See fixEndTime(Date, Date).
+     * @param start the reference date/time in milliseconds
+     * @param end the date/time in milliseconds to adjust
+     * @return the adjusted end date/time in milliseconds
+     */
+    public static long fixEndTime(long start, long end) {
+        long timeOfDay = getMillisOfDay(end) / 1000 * 1000;
+        long day = toEpochDay(start);
+        end = fromLocalMillis(day * DAY_MS + timeOfDay);
+        if (end < start) {
             // move the end date to the day after start but at the same time
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(end);
-            cal.set(Calendar.DAY_OF_MONTH, cal.get(Calendar.DAY_OF_MONTH) + 1);
-            return cal.getTime();
-        } else {
-            return end;
+            end = fromLocalMillis((day + 1) * DAY_MS + timeOfDay);
         }
+        return end;
+    }
+
+    /**
+     * Gets the date/time of the start (midnight) of a local epoch-day.
+     * @param epochDay the number of the day (see toEpochDay())
+     * @return the date/time in milliseconds of the start of that day in the current time zone
+     */
+    public static long startOfEpochDay(long epochDay) {
+        long start = fromLocalMillis(epochDay * DAY_MS);
+        if (toEpochDay(start) < epochDay) {
+            // midnight was skipped by a time zone change so the day starts at the change instead
+            long hi = start + DAY_MS;
+            while (start + 1 < hi) {
+                long mid = start + (hi - start) / 2;
+                if (toEpochDay(mid) < epochDay) { start = mid; } else { hi = mid; }
+            }
+            start = hi;
+        }
+        return start;
+    }
+
+    /**
+     * Gets the minute of the day of a date/time in the current time zone.
+     * @param millis the date/time in milliseconds
+     * @return the number of minutes since midnight (0-1439)
+     */
+    public static int getMinuteOfDay(long millis) {
+        return (int) (getMillisOfDay(millis) / 60000);
+    }
+
+    /**
+     * Converts a local epoch-day into its year, month, and day.
+     * @param epochDay the number of the day (see toEpochDay())
+     * @return an array of the year, month (1-12), and day of the month (1-31)
+     */
+    public static int[] civilFromEpochDay(long epochDay) {
+        // days are shifted so the year starts on March 1 which puts leap days at the end of the year
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524 - dayOfEra/146096) / 365;
+        long dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+        long shiftedMonth = (5*dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153*shiftedMonth + 2)/5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * Converts a year, month, and day into a local epoch-day. The opposite of civilFromEpochDay().
+     * @param year the year (e.g. 2021)
+     * @param month the month (1-12)
+     * @param dayOfMonth the day of that month (1-31)
+     * @return the number of the day
+     */
+    public static long epochDayFromCivil(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153*(month > 2 ? month - 3 : month + 9) + 2)/5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra/4 - yearOfEra/100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
     }
 
     /**
@@ -166,7 +382,8 @@ public class DateUtils {
      * @return the String like "Tuesday April 1, 2021"
      */
     public static String toFullDateString(Date date) {
-        return fullDateFormat.format(date.getTime());
+        long epochDay = toEpochDay(date.getTime());
+        return DAY_NAMES[(int) Math.floorMod(epochDay + 4, 7)] + ' ' + toDateString(epochDay); // day 0 was a Thursday
     }
 
     /**
@@ -176,15 +393,21 @@ public class DateUtils {
      * @return the String like "April 1, 2021"
      */
     public static String toDateString(Date date) {
-        return dateFormat.format(date.getTime());
+        return toDateString(toEpochDay(date.getTime()));
+    }
+
+    private static String toDateString(long epochDay) {
+        int[] ymd = civilFromEpochDay(epochDay);
+        return MONTH_NAMES[ymd[1] - 1] + ' ' + ymd[2] + ", " + ymd[0];
     }
 
     /**
-     * Get the textual representation of the time like "3:42 pm".
+     * Get the textual representation of the time like "3:42 pm". These are looked up from a table
+     * of every minute of the day so nothing needs to be formatted.
      * @param date the Date to get the information from
      * @return the String like "3:42 pm"
      */
     public static String toTimeString(Date date) {
-        return timeFormat.format(date.getTime());
+        return TIME_STRINGS[getMinuteOfDay(date.getTime())];
     }
 }
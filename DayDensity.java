@@ -0,0 +1,27 @@
+package edu.moravian.csci299.mocalendar;
+
+/**
+ * How busy a single day is: the number of events on it and which type of event is most
+ * common on it. Used to decorate the days of a month.
+ */
+public class DayDensity {
+    /**
+     * The local epoch-day (see DateUtils.toEpochDay()).
+     */
+    public final long day;
+    /**
+     * The number of events (or occurrences of repeating events) on the day, counting every day an
+     * event covers.
+     */
+    public final int count;
+    /**
+     * The most common type of event on the day.
+     */
+    public final EventType busiestType;
+
+    public DayDensity(long day, int count, EventType busiestType) {
+        this.day = day;
+        this.count = count;
+        this.busiestType = busiestType;
+    }
+}
@@ -0,0 +1,161 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The repository's cache of how many events of each type are on each day, for the months that have
+ * been looked at (an event that spans several days counts on each of them). A whole month is loaded at once and after that each write just adjusts the counts
+ * of the days it touches, so showing how busy the days of a month are never needs more than one
+ * query.
+ *
+ * All methods are synchronized. Since a month is loaded without holding the lock, every change bumps
+ * a generation number and a month is only stored if nothing changed (or started changing) while it
+ * was being loaded.
+ */
+public class DayDensityTable {
+    // the most months kept at once, everything is dropped when there are more
+    private static final int MAX_MONTHS = 24;
+    // one more than the largest EventType code, the size of the count arrays
+    private static final int TYPE_CODES;
+    static {
+        int max = 0;
+        for (EventType type : EventType.values()) { max = Math.max(max, type.code); }
+        TYPE_CODES = max + 1;
+    }
+
+    private final Map<Long, int[]> counts = new HashMap<>(); // the count of each type code on each local epoch-day
+    private final Set<Long> months = new HashSet<>(); // the first day of each month that is loaded
+    private long generation = 0;
+    private boolean writing = false; // true between startWrite() and finishWrite()
+
+    /**
+     * @return the current generation, give this to putMonth() after loading a month
+     */
+    public synchronized long getGeneration() { return generation; }
+
+    /**
+     * @return true if no months are loaded, so writes do not need to adjust anything
+     */
+    public synchronized boolean isEmpty() { return months.isEmpty(); }
+
+    /**
+     * Gets the density of each day of a month if the month is loaded.
+     * @param firstDay the local epoch-day of the first day of the month
+     * @param lastDay the local epoch-day of the last day of the month
+     * @return the density of each day with any events, in order, or null if the month is not loaded
+     */
+    public synchronized List<DayDensity> getMonth(long firstDay, long lastDay) {
+        if (!months.contains(firstDay)) { return null; }
+        List<DayDensity> densities = new ArrayList<>();
+        for (long day = firstDay; day <= lastDay; day++) {
+            DayDensity density = toDensity(day, counts.get(day));
+            if (density != null) { densities.add(density); }
+        }
+        return densities;
+    }
+
+    /**
+     * Counts up the loaded events of a month, and stores the counts if nothing was written since the
+     * given generation.
+     * @param firstDay the local epoch-day of the first day of the month
+     * @param lastDay the local epoch-day of the last day of the month
+     * @param rows the number of events of each type with each start and end day, each counted on every day of the
+     *             month from its start day through its end day, the same days and type may appear more than once
+     * @param generation the generation from before the events were loaded
+     * @return the density of each day with any events, in order
+     */
+    public synchronized List<DayDensity> putMonth(long firstDay, long lastDay, List<DayTypeCount> rows, long generation) {
+        Map<Long, int[]> monthCounts = new HashMap<>();
+        for (DayTypeCount row : rows) {
+            for (long day = Math.max(row.startDay, firstDay), end = Math.min(row.endDay, lastDay); day <= end; day++) {
+                int[] dayCounts = monthCounts.get(day);
+                if (dayCounts == null) { monthCounts.put(day, dayCounts = new int[TYPE_CODES]); }
+                dayCounts[row.type.code] += row.count;
+            }
+        }
+        if (generation == this.generation && !writing) {
+            if (months.size() >= MAX_MONTHS) { clear(); }
+            months.add(firstDay);
+            counts.putAll(monthCounts);
+        }
+        List<DayDensity> densities = new ArrayList<>();
+        for (long day = firstDay; day <= lastDay; day++) {
+            DayDensity density = toDensity(day, monthCounts.get(day));
+            if (density != null) { densities.add(density); }
+        }
+        return densities;
+    }
+
+    /**
+     * Adds to (or subtracts from) the count of a type on each day of a range, for the days whose month
+     * is loaded.
+     * @param firstDay the local epoch-day the event starts on
+     * @param lastDay the local epoch-day the event ends on
+     * @param type the type of the event
+     * @param delta 1 for an event added to the days, -1 for one removed
+     */
+    public synchronized void adjust(long firstDay, long lastDay, EventType type, int delta) {
+        for (long day = firstDay; day <= lastDay; ) {
+            int[] ymd = DateUtils.civilFromEpochDay(day);
+            long monthFirstDay = day - ymd[2] + 1;
+            long monthLastDay = (ymd[1] == 12 ? DateUtils.epochDayFromCivil(ymd[0] + 1, 1, 1) :
+                    DateUtils.epochDayFromCivil(ymd[0], ymd[1] + 1, 1)) - 1;
+            if (months.contains(monthFirstDay)) {
+                for (long end = Math.min(lastDay, monthLastDay); day <= end; day++) {
+                    int[] dayCounts = counts.get(day);
+                    if (dayCounts == null) { counts.put(day, dayCounts = new int[TYPE_CODES]); }
+                    dayCounts[type.code] = Math.max(0, dayCounts[type.code] + delta);
+                }
+            }
+            day = monthLastDay + 1; // months that are not loaded are skipped whole
+        }
+    }
+
+    /**
+     * Notes that the events are about to be changed so that no month being loaded at the same time is
+     * stored. Call finishWrite() once the change is committed and the counts have been adjusted.
+     * @return true if any months are loaded, so the counts need to be adjusted for the change
+     */
+    public synchronized boolean startWrite() {
+        generation++;
+        writing = true;
+        return !months.isEmpty();
+    }
+
+    /**
+     * Notes that the events have been changed.
+     */
+    public synchronized void finishWrite() {
+        generation++;
+        writing = false;
+    }
+
+    /**
+     * Drops every month, for when the days have moved (the time zone changed) or a change is too big to
+     * adjust the counts of (a repeating event was written).
+     */
+    public synchronized void clear() {
+        generation++;
+        counts.clear();
+        months.clear();
+    }
+
+    /**
+     * Turns the counts of each type on a day into its density.
+     * @return the density or null if there are no events on the day
+     */
+    private static DayDensity toDensity(long day, int[] dayCounts) {
+        if (dayCounts == null) { return null; }
+        int total = 0, busiest = -1;
+        for (int code = 0; code < dayCounts.length; code++) {
+            total += dayCounts[code];
+            if (dayCounts[code] > 0 && (busiest < 0 || dayCounts[code] > dayCounts[busiest])) { busiest = code; }
+        }
+        return total == 0 ? null : new DayDensity(day, total, EventType.fromCode(busiest));
+    }
+}
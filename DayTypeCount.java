@@ -0,0 +1,28 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The number of events of one type that start on one local day and end on another (or the same)
+ * one. This is what the DAO returns for the per-day density of a month, each event counts on every
+ * day from its start day through its end day.
+ */
+public class DayTypeCount {
+    /**
+     * The local epoch-day the events start on (see DateUtils.toEpochDay()).
+     */
+    public long startDay;
+    /**
+     * The local epoch-day the events end on, never before startDay.
+     */
+    public long endDay;
+    /**
+     * The type of the events.
+     */
+    @NonNull
+    public EventType type;
+    /**
+     * The number of events of that type starting and ending on those days.
+     */
+    public int count;
+}
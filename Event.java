@@ -1,7 +1,9 @@
 package edu.moravian.csci299.mocalendar;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
@@ -11,9 +13,19 @@ import java.util.UUID;
  * An Event object contains all of the information about a single event or
  * assignment due date.
  *
+ * The start time, end time, and type with start time are indexed so that queries by date-time
+ * (optionally filtered by type) can search instead of scanning the entire table. The start time is
+ * indexed together with the id so that paging through every event in that order seeks straight to
+ * each page instead of sorting the rest of the table. The local days the
+ * event starts and ends on are also stored (and indexed) so that counting the events on each day of a
+ * month is a lookup of whole day numbers that is right even on days that are 23 or 25 hours long. The duration
+ * is stored (and indexed) so that the longest event can be found instantly, which bounds how far
+ * before a range an event overlapping it can start.
+ *
  * NOTE: this class is complete.
  */
-@Entity
+@Entity(indices = {@Index({"startTime", "id"}), @Index("endTime"), @Index({"type", "startTime"}), @Index({"startDay", "endDay"}),
+        @Index("duration")})
 public class Event {
     /**
      * The id of the event is the primary key in the database.
@@ -46,4 +58,35 @@ public class Event {
      */
     @NonNull
     public String description = "";
+    /**
+     * How the event repeats as an RRULE (see RecurrenceRule) or null if it happens once. A repeating
+     * event is stored once, its start and end times are those of the first occurrence.
+     */
+    public String recurrence = null;
+    /**
+     * The start times (in milliseconds, comma-separated) of occurrences of a repeating event that
+     * are skipped, or null if none are.
+     */
+    public String excludedDates = null;
+    /**
+     * The local epoch-day (see DateUtils.toEpochDay()) the event starts on in the current time zone.
+     * This is set by the repository whenever the event is written and recomputed for every event
+     * when the time zone changes.
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long startDay;
+    /**
+     * The local epoch-day the event ends on (see DateUtils.toEndEpochDay()), the same as startDay if
+     * the event has no end time, and the day before its end if it ends at midnight. For a
+     * repeating event both days are those of the first occurrence.
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long endDay;
+    /**
+     * The time from the start to the end of the event (of its first occurrence if it repeats) in
+     * milliseconds, 0 if the event has no end time. This is set by the repository whenever the event
+     * is written.
+     */
+    @ColumnInfo(defaultValue = "0")
+    public long duration;
 }
@@ -3,6 +3,8 @@ package edu.moravian.csci299.mocalendar;
 import android.os.Bundle;
 
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -13,8 +15,10 @@ import android.view.ViewGroup;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -40,6 +44,8 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
 
     // argument once loaded from database
     private Event event;
+    // set every time the times of the event are changed so they can be checked for conflicts
+    private final MutableLiveData<Event> editedTimes = new MutableLiveData<>();
 
     //The views
     private EditText editEventName;
@@ -79,6 +85,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
                 updateUI();
             });
         }
+        Transformations.switchMap(editedTimes, CalendarRepository.get()::getConflictsWith).observe(this, this::showConflicts);
     }
 
     /**
@@ -132,7 +139,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
     // TODO: save the event to the database at some point
     public void onStop() {
         super.onStop();
-        CalendarRepository.get().updateEvent(event);
+        if (event != null) { CalendarRepository.get().updateEvent(event); }
     }
 
     /**
@@ -155,6 +162,20 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
 
     }
 
+    /**
+     * Warns the user if the new times of the event overlap other events.
+     * @param conflicts the events that overlap the event being edited
+     */
+    private void showConflicts(List<Event> conflicts) {
+        if (conflicts.isEmpty()) { return; }
+        StringBuilder names = new StringBuilder();
+        for (Event conflict : conflicts) {
+            if (names.length() > 0) { names.append(", "); }
+            names.append(conflict.name);
+        }
+        Toast.makeText(requireContext(), "Overlaps with " + names, Toast.LENGTH_LONG).show();
+    }
+
     // TODO: maybe some helpful functions for showing dialogs and the callback functions
     @Override
     public void onDateSelected(Date date) {
@@ -163,6 +184,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
             event.endTime = DateUtils.combineDateAndTime(date, event.endTime);
         }
         updateUI();
+        editedTimes.setValue(event);
     }
 
     @Override
@@ -181,6 +203,7 @@ public class EventFragment extends Fragment implements TextWatcher, DatePickerFr
             event.endTime = DateUtils.combineDateAndTime(event.endTime, time);
         }
         updateUI();
+        editedTimes.setValue(event);
     }
 
     /**
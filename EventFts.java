@@ -0,0 +1,22 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * The full-text search table over the name and description of every event. It is an external
+ * content FTS4 table, so it does not keep its own copy of the text: Room keeps it in sync with the
+ * event table using triggers and the search functions read the text from the event table.
+ */
+@Fts4(contentEntity = Event.class)
+@Entity(tableName = "EventFts")
+public class EventFts {
+    /**
+     * Name of the event.
+     */
+    public String name;
+    /**
+     * The description of the event.
+     */
+    public String description;
+}
@@ -0,0 +1,42 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * A lightweight view of just the id, times, recurrence, and days of an event. This is what the DAO returns when the
+ * repository needs to (re)build its in-memory interval index without loading every event's name
+ * and description.
+ */
+public class EventInterval {
+    /**
+     * The id of the event.
+     */
+    @NonNull
+    public UUID id;
+    /**
+     * The start time of the event in milliseconds.
+     */
+    public long startTime;
+    /**
+     * The end time of the event in milliseconds, or null if the event is an assignment.
+     */
+    public Long endTime;
+    /**
+     * The recurrence rule of the event, or null if it does not repeat.
+     */
+    public String recurrence;
+    /**
+     * The skipped occurrences of a repeating event, or null if there are none.
+     */
+    public String excludedDates;
+    /**
+     * The stored local epoch-day the event starts on.
+     */
+    public long startDay;
+    /**
+     * The stored local epoch-day the event ends on.
+     */
+    public long endDay;
+}
@@ -0,0 +1,269 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An in-memory index of the time interval covered by every event in the database. This is an
+ * augmented interval tree (a balanced AVL tree ordered by start time where every node also knows the
+ * latest end time anywhere in its subtree) so that finding all events overlapping a range of
+ * date-times takes O(log n + k) instead of scanning every event.
+ *
+ * Only the id and the start/end times (in epoch milliseconds) are kept, the events themselves are
+ * loaded from the database by id. An event with a null end time (an assignment) is indexed as a
+ * single point in time at its start time. A repeating event is indexed once, from the start of its
+ * first occurrence to the end of its last (which may be never), so the index only says that the
+ * series might have an occurrence in a range.
+ *
+ * All methods are synchronized so the index can be updated from the repository's background thread
+ * while being read from elsewhere.
+ */
+public class EventIntervalIndex {
+    /**
+     * A single node in the tree holding one event's interval.
+     */
+    private static class Node {
+        final UUID id;
+        final long start;
+        final long end;
+        long maxEnd;
+        int height = 1;
+        Node left, right;
+
+        Node(UUID id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private final Map<UUID, Node> nodes = new HashMap<>();
+
+    /**
+     * @return the number of events in the index
+     */
+    public synchronized int size() { return nodes.size(); }
+
+    /**
+     * Removes every event from the index.
+     */
+    public synchronized void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    /**
+     * Adds an event's interval to the index, replacing any interval already indexed for that id.
+     * @param id the id of the event
+     * @param start the start time of the event in milliseconds
+     * @param end the end time of the event in milliseconds, or null if the event has no end time
+     */
+    public synchronized void put(UUID id, long start, Long end) {
+        remove(id);
+        Node node = new Node(id, start, end == null ? start : Math.max(start, end));
+        root = insert(root, node);
+        nodes.put(id, node);
+    }
+
+    /**
+     * Adds (or replaces) the interval of the given event in the index.
+     * @param event the event to index
+     */
+    public void put(Event event) {
+        put(event.id, event.startTime.getTime(), event.endTime == null ? null : event.endTime.getTime(),
+                event.recurrence, event.excludedDates);
+    }
+
+    /**
+     * Adds (or replaces) the interval of the given event in the index.
+     * @param interval the id, times, and recurrence of the event to index
+     */
+    public void put(EventInterval interval) {
+        put(interval.id, interval.startTime, interval.endTime, interval.recurrence, interval.excludedDates);
+    }
+
+    /**
+     * Adds an event to the index, covering all of its occurrences if it repeats.
+     */
+    private void put(UUID id, long start, Long end, String recurrence, String excludedDates) {
+        if (recurrence != null) {
+            try {
+                long duration = end == null ? 0 : Math.max(0, end - start);
+                end = RecurrenceRule.parse(recurrence, excludedDates).getSeriesEnd(start, duration);
+            } catch (IllegalArgumentException ex) {
+                // a rule that cannot be understood is treated as if the event does not repeat
+            }
+        }
+        put(id, start, end);
+    }
+
+    /**
+     * Removes an event from the index.
+     * @param id the id of the event to remove
+     * @return true if the event was in the index
+     */
+    public synchronized boolean remove(UUID id) {
+        Node node = nodes.remove(id);
+        if (node == null) { return false; }
+        root = delete(root, node.start, node.id);
+        return true;
+    }
+
+    /**
+     * Checks if an event is in the index.
+     * @param id the id of the event
+     * @return true if the event is indexed
+     */
+    public synchronized boolean contains(UUID id) { return nodes.containsKey(id); }
+
+    /**
+     * Gets the indexed start time of an event.
+     * @param id the id of the event
+     * @return the start time in milliseconds, or Long.MIN_VALUE if the event is not indexed
+     */
+    public synchronized long getStart(UUID id) {
+        Node node = nodes.get(id);
+        return node == null ? Long.MIN_VALUE : node.start;
+    }
+
+    /**
+     * Gets the indexed end time of an event. For events without an end time this is the start time.
+     * @param id the id of the event
+     * @return the end time in milliseconds, or Long.MIN_VALUE if the event is not indexed
+     */
+    public synchronized long getEnd(UUID id) {
+        Node node = nodes.get(id);
+        return node == null ? Long.MIN_VALUE : node.end;
+    }
+
+    /**
+     * Finds every event whose interval overlaps the given range. The range and the event intervals
+     * include their start but not their end, so an event ending exactly when the range starts (such
+     * as a class ending at midnight, for the next day) is not included, and neither is one starting
+     * exactly when the range ends. An event that is a single point in time is included if it is at or
+     * after the start of the range and before its end. This matches ConflictDetector. The ids are
+     * returned ordered by start time.
+     *
+     * @param start the start of the range in milliseconds
+     * @param end the end of the range in milliseconds (exclusive)
+     * @return the ids of all events overlapping the range
+     */
+    public synchronized List<UUID> overlapping(long start, long end) {
+        List<UUID> ids = new ArrayList<>();
+        if (start < end) { collect(root, start, end, ids); }
+        return ids;
+    }
+
+    /**
+     * Checks if an interval overlaps a range in the same way as overlapping().
+     * @param eventStart the start of the interval
+     * @param eventEnd the end of the interval, equal to its start for a single point in time
+     * @param start the start of the range
+     * @param end the end of the range (exclusive)
+     * @return true if they overlap
+     */
+    public static boolean overlaps(long eventStart, long eventEnd, long start, long end) {
+        return eventStart < end && (eventEnd > start || eventStart == start);
+    }
+
+    /**
+     * Recursively collects the ids of all events in the subtree overlapping the range, in order.
+     */
+    private static void collect(Node node, long start, long end, List<UUID> ids) {
+        while (node != null && node.maxEnd >= start) { // a point exactly at the start still overlaps
+            collect(node.left, start, end, ids);
+            if (node.start >= end) { return; } // everything to the right starts even later
+            if (overlaps(node.start, node.end, start, end)) { ids.add(node.id); }
+            node = node.right;
+        }
+    }
+
+    ///// AVL tree maintenance /////
+
+    private static int compare(long start, UUID id, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : id.compareTo(node.id);
+    }
+
+    private static int height(Node node) { return node == null ? 0 : node.height; }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd > maxEnd) { maxEnd = node.left.maxEnd; }
+        if (node.right != null && node.right.maxEnd > maxEnd) { maxEnd = node.right.maxEnd; }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int diff = height(node.left) - height(node.right);
+        if (diff > 1) {
+            if (height(node.left.left) < height(node.left.right)) { node.left = rotateLeft(node.left); }
+            return rotateRight(node);
+        } else if (diff < -1) {
+            if (height(node.right.right) < height(node.right.left)) { node.right = rotateRight(node.right); }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) { return added; }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, long start, UUID id) {
+        if (node == null) { return null; }
+        int c = compare(start, id, node);
+        if (c < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (c > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) { return node.right; }
+            if (node.right == null) { return node.left; }
+            // replace this node with the smallest node of the right subtree
+            Node successor = node.right;
+            while (successor.left != null) { successor = successor.left; }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) { return node.right; }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+}
@@ -0,0 +1,128 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads all events a page at a time in order of start time, for screens that show every event (like
+ * an agenda) without loading the whole table. Pages are found by seeking from the start time and id
+ * of the event at the edge of the page already loaded instead of by offset, so every page costs the
+ * same to load no matter how far into the calendar it is, and pages can be loaded in both directions.
+ *
+ * The repository invalidates the source whenever events are written so the pager reloads around
+ * what is being shown.
+ */
+public class EventPagingSource extends ListenableFuturePagingSource<EventPagingSource.Key, Event> {
+    // the largest possible id, every id compares less than or equal to it
+    private static final UUID LAST_ID = new UUID(-1, -1);
+
+    /**
+     * Where a page starts: the events after (or before) a given start time and id.
+     */
+    public static final class Key {
+        final long startTime;
+        final UUID id;
+        final boolean before;
+
+        private Key(long startTime, UUID id, boolean before) {
+            this.startTime = startTime;
+            this.id = id;
+            this.before = before;
+        }
+
+        /**
+         * @param startTime the time in milliseconds
+         * @return the key for the page of events starting at or after the given time
+         */
+        public static Key startingAt(long startTime) {
+            return startTime == Long.MIN_VALUE ? new Key(startTime, new UUID(0, 0), false) :
+                    new Key(startTime - 1, LAST_ID, false);
+        }
+
+        static Key after(Event event) { return new Key(event.startTime.getTime(), event.id, false); }
+
+        static Key before(Event event) { return new Key(event.startTime.getTime(), event.id, true); }
+    }
+
+    private final CalendarDao calendarDao;
+    private final Executor executor;
+    private final RepositoryMetrics metrics;
+
+    /**
+     * @param calendarDao the DAO to load the events with
+     * @param executor the background executor to load the pages on
+     * @param metrics where to record how long each page takes to load
+     */
+    EventPagingSource(CalendarDao calendarDao, Executor executor, RepositoryMetrics metrics) {
+        this.calendarDao = calendarDao;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Key, Event>> loadFuture(@NonNull LoadParams<Key> params) {
+        ListenableFutureTask<LoadResult<Key, Event>> task = ListenableFutureTask.create(() -> {
+            long start = metrics == RepositoryMetrics.NONE ? 0 : System.nanoTime();
+            LoadResult.Page<Key, Event> page = load(params.getKey(), params.getLoadSize());
+            if (start != 0) {
+                metrics.recordLatency(RepositoryMetrics.Operation.PAGE_LOAD, System.nanoTime() - start, page.getData().size());
+            }
+            return page;
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Loads one page. Must be run on the background thread.
+     * @param key where the page starts, or null to start at the first event
+     * @param size the most events to load
+     * @return the page of events along with the keys of the pages before and after it
+     */
+    private LoadResult.Page<Key, Event> load(Key key, int size) {
+        if (key == null) { key = Key.startingAt(Long.MIN_VALUE); }
+        List<Event> events;
+        boolean atStart, atEnd;
+        if (key.before) {
+            events = calendarDao.getEventsBefore(key.startTime, key.id, size);
+            Collections.reverse(events);
+            atStart = events.size() < size;
+            atEnd = false;
+        } else {
+            events = calendarDao.getEventsAfter(key.startTime, key.id, size);
+            atStart = key.startTime == Long.MIN_VALUE;
+            atEnd = events.size() < size;
+        }
+        if (events.isEmpty()) {
+            // there is nothing more in this direction, the key still marks where the other direction carries on from
+            Key other = new Key(key.startTime, key.id, !key.before);
+            return new LoadResult.Page<>(events, key.before || atStart ? null : other, key.before ? other : null);
+        }
+        return new LoadResult.Page<>(events, atStart ? null : Key.before(events.get(0)),
+                atEnd ? null : Key.after(events.get(events.size() - 1)));
+    }
+
+    /**
+     * When reloading after the events change, starts the new first page at the event being shown so the
+     * list stays where the user is looking.
+     */
+    @Nullable
+    @Override
+    public Key getRefreshKey(@NonNull PagingState<Key, Event> state) {
+        Integer anchor = state.getAnchorPosition();
+        if (anchor == null) { return null; }
+        Event event = state.closestItemToPosition(anchor);
+        return event == null ? null : Key.startingAt(event.startTime.getTime());
+    }
+}
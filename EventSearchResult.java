@@ -0,0 +1,26 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * A single result of a full-text search of the events. This is just enough to show a list of
+ * results, the full event can be loaded by its id when one is picked.
+ */
+public class EventSearchResult {
+    /**
+     * The id of the matching event.
+     */
+    @NonNull
+    public UUID id;
+    /**
+     * Name of the matching event.
+     */
+    @NonNull
+    public String name;
+    /**
+     * A short piece of the matching text with the matched words surrounded by [ and ].
+     */
+    public String snippet;
+}
@@ -4,30 +4,61 @@ package edu.moravian.csci299.mocalendar;
  * The types of events (and assignments). This is gives each type an icon and a name so that it can
  * be displayed with the events for easy identification.
  *
- * NOTE: If you want to, you can add additional types here. Each one requires a name and a drawable
- * id so that it can be selected and have an icon displayed.
+ * NOTE: If you want to, you can add additional types here. Each one requires a unique code (which is
+ * what is stored in the database), a name, and a drawable id so that it can be selected and have an
+ * icon displayed. Never change or reuse the code of an existing type.
  */
 public enum EventType {
-    GENERIC("Event", R.drawable.event),
-    ASSIGNMENT("Assignment", R.drawable.assignment),
-    CLASS("Class", R.drawable.school),
-    LAB("Lab", R.drawable.science),
-    EXAM("Exam", R.drawable.quiz),
-    ESSAY("Essay", R.drawable.essay),
-    PROGRAMMING("Programming Assignment", R.drawable.code),
-    READING("Reading Assignment", R.drawable.book),
-    CLUB("Club", R.drawable.groups),
-    OFFICE_HOURS("Office Hours", R.drawable.meeting_room),
-    ATHLETIC_PRACTICE("Athletic Practice", R.drawable.sports_soccer),
-    MUSIC_PRACTICE("Music Practice", R.drawable.music_note),
-    COMPETITION("Competition", R.drawable.trophy),
-    PRESENTATION("Presentation", R.drawable.present),
-    HOLIDAY("Holiday", R.drawable.holiday);
+    GENERIC(0, "Event", R.drawable.event),
+    ASSIGNMENT(1, "Assignment", R.drawable.assignment),
+    CLASS(2, "Class", R.drawable.school),
+    LAB(3, "Lab", R.drawable.science),
+    EXAM(4, "Exam", R.drawable.quiz),
+    ESSAY(5, "Essay", R.drawable.essay),
+    PROGRAMMING(6, "Programming Assignment", R.drawable.code),
+    READING(7, "Reading Assignment", R.drawable.book),
+    CLUB(8, "Club", R.drawable.groups),
+    OFFICE_HOURS(9, "Office Hours", R.drawable.meeting_room),
+    ATHLETIC_PRACTICE(10, "Athletic Practice", R.drawable.sports_soccer),
+    MUSIC_PRACTICE(11, "Music Practice", R.drawable.music_note),
+    COMPETITION(12, "Competition", R.drawable.trophy),
+    PRESENTATION(13, "Presentation", R.drawable.present),
+    HOLIDAY(14, "Holiday", R.drawable.holiday);
 
+    /**
+     * The code stored in the database for this type. Unlike the ordinal this never changes, so new
+     * types can be added anywhere in the list as long as they get a new, unused, code.
+     */
+    public final int code;
     public final String simpleName;
     public final int iconResourceId;
-    EventType(String name, int iconResId) {
+    EventType(int code, String name, int iconResId) {
+        this.code = code;
         this.simpleName = name;
         this.iconResourceId = iconResId;
     }
+
+    // lookup table from code to type
+    private static final EventType[] BY_CODE;
+    static {
+        int max = 0;
+        for (EventType type : values()) { max = Math.max(max, type.code); }
+        BY_CODE = new EventType[max + 1];
+        for (EventType type : values()) {
+            if (BY_CODE[type.code] != null) { throw new IllegalStateException("Duplicate EventType code " + type.code); }
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    /**
+     * Gets the type with the given database code.
+     * @param code the code of the type
+     * @return the type with that code
+     * @throws IllegalArgumentException if there is no type with that code
+     */
+    public static EventType fromCode(int code) {
+        EventType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) { throw new IllegalArgumentException("No EventType with code " + code); }
+        return type;
+    }
 }
@@ -0,0 +1,66 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the free time between events. The busy time of all of the events is merged with a single
+ * sweep over them in order of start time and whatever is left over within the working hours of each
+ * day is free. Assignments (events without an end time) take no time so they never make anything
+ * busy.
+ */
+public class FreeSlotFinder {
+    private FreeSlotFinder() { }
+
+    /**
+     * Finds every free slot of at least the given length in a range. This takes O(n log n) time for n
+     * events plus time proportional to the number of days in the range.
+     * @param events the events in (or overlapping) the range, in any order
+     * @param rangeStart the start of the range in milliseconds
+     * @param rangeEnd the end of the range in milliseconds
+     * @param minDuration the shortest slot to return in milliseconds
+     * @param workingHours the hours of the day that slots can be in, or null for the whole day
+     * @return the free slots in order
+     */
+    public static List<TimeSlot> findFreeSlots(List<Event> events, long rangeStart, long rangeEnd, long minDuration,
+                                               WorkingHours workingHours) {
+        // the busy intervals as start and end pairs, sorted by start
+        long[][] busy = new long[events.size()][];
+        int count = 0;
+        for (Event event : events) {
+            if (event.endTime == null) { continue; }
+            long start = event.startTime.getTime(), end = event.endTime.getTime();
+            if (end > start && end > rangeStart && start < rangeEnd) { busy[count++] = new long[] { start, end }; }
+        }
+        Arrays.sort(busy, 0, count, (a, b) -> Long.compare(a[0], b[0]));
+
+        List<TimeSlot> slots = new ArrayList<>();
+        long free = rangeStart; // everything from here until the next busy interval is free
+        for (int i = 0; i < count && free < rangeEnd; i++) {
+            if (busy[i][0] > free) { addSlots(slots, free, Math.min(busy[i][0], rangeEnd), minDuration, workingHours); }
+            free = Math.max(free, busy[i][1]);
+        }
+        if (free < rangeEnd) { addSlots(slots, free, rangeEnd, minDuration, workingHours); }
+        return slots;
+    }
+
+    /**
+     * Adds the parts of a free interval that are within the working hours and long enough.
+     */
+    private static void addSlots(List<TimeSlot> slots, long start, long end, long minDuration, WorkingHours workingHours) {
+        if (workingHours == null) {
+            if (end - start >= minDuration) { slots.add(new TimeSlot(start, end)); }
+            return;
+        }
+        for (long day = DateUtils.toEpochDay(start), last = DateUtils.toEpochDay(end - 1); day <= last; day++) {
+            long dayStart = DateUtils.startOfEpochDay(day);
+            if (!workingHours.includes(DateUtils.getDayOfWeek(dayStart))) { continue; }
+            long hoursStart = DateUtils.fromLocalMillis(day * DateUtils.DAY_MS + workingHours.startMinute * 60000L);
+            long hoursEnd = workingHours.endMinute == 24 * 60 ? DateUtils.startOfEpochDay(day + 1) :
+                    DateUtils.fromLocalMillis(day * DateUtils.DAY_MS + workingHours.endMinute * 60000L);
+            long slotStart = Math.max(start, hoursStart), slotEnd = Math.min(end, hoursEnd);
+            if (slotEnd - slotStart >= minDuration && slotEnd > slotStart) { slots.add(new TimeSlot(slotStart, slotEnd)); }
+        }
+    }
+}
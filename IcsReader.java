@@ -0,0 +1,265 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * Reads events from an iCalendar (.ics) file one at a time. Only the current event is ever in
+ * memory so files of any size can be read. Each VEVENT becomes an Event:
+ *  - UID becomes the id (a UID that is not a UUID is turned into one, so reading the same file
+ *    again gives the same ids)
+ *  - DTSTART and DTEND (or DURATION) become the start and end time, if there is neither DTEND nor
+ *    DURATION the event is an assignment with no end time
+ *  - SUMMARY and DESCRIPTION become the name and description
+ *  - CATEGORIES becomes the type if one of them is the name of an EventType
+ *  - RRULE and EXDATE become the recurrence and excluded dates
+ * Everything else is ignored. Events that change a single occurrence of a repeating event (those
+ * with a RECURRENCE-ID) are not supported and are skipped.
+ */
+public class IcsReader implements Closeable {
+    private final BufferedReader reader;
+    private String lookahead; // the next physical line, already read to check if it is a continuation
+    private int skipped = 0;
+
+    /**
+     * @param reader where to read the iCalendar text from
+     */
+    public IcsReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the number of events that have been skipped because they could not be read
+     */
+    public int getSkippedCount() { return skipped; }
+
+    /**
+     * Reads the next event from the file.
+     * @return the next event or null if there are no more
+     * @throws IOException if reading fails
+     */
+    public Event next() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                Event event = readEvent();
+                if (event != null) { return event; }
+                skipped++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the properties of a VEVENT up to its END line.
+     * @return the event or null if it could not be used
+     */
+    private Event readEvent() throws IOException {
+        Event event = new Event();
+        String uid = null, tzid = null;
+        long start = Long.MIN_VALUE, end = Long.MIN_VALUE, duration = -1;
+        boolean valid = true, allDay = false;
+        StringBuilder excluded = null;
+        String line;
+        while ((line = readLine()) != null) {
+            int colon = valueStart(line);
+            if (colon < 0) { continue; }
+            String[] params = line.substring(0, colon).split(";");
+            String name = params[0].toUpperCase(Locale.US), value = line.substring(colon + 1);
+            try {
+                switch (name) {
+                case "END":
+                    if (value.equalsIgnoreCase("VEVENT")) {
+                        if (!valid || start == Long.MIN_VALUE) { return null; }
+                        if (uid != null) { event.id = toUUID(uid); }
+                        event.startTime = new Date(start);
+                        if (end == Long.MIN_VALUE && duration >= 0) { end = start + duration; }
+                        if (end == Long.MIN_VALUE && allDay) { end = DateUtils.startOfDay(start + DateUtils.DAY_MS + DateUtils.DAY_MS / 2); }
+                        event.endTime = end == Long.MIN_VALUE ? null : new Date(Math.max(start, end));
+                        if (excluded != null) { event.excludedDates = excluded.toString(); }
+                        return event;
+                    }
+                    break;
+                case "BEGIN":
+                    skipComponent(value); // e.g. a VALARM inside the event
+                    break;
+                case "UID": uid = value; break;
+                case "SUMMARY": event.name = unescape(value); break;
+                case "DESCRIPTION": event.description = unescape(value); break;
+                case "CATEGORIES": event.type = toEventType(value, event.type); break;
+                case "RRULE": event.recurrence = value; break;
+                case "RECURRENCE-ID": valid = false; break;
+                case "DTSTART":
+                    tzid = param(params, "TZID");
+                    allDay = value.length() == 8;
+                    start = parseDateTime(value, tzid);
+                    break;
+                case "DTEND": end = parseDateTime(value, param(params, "TZID")); break;
+                case "DURATION": duration = parseDuration(value); break;
+                case "EXDATE":
+                    for (String date : value.split(",")) {
+                        if (excluded == null) { excluded = new StringBuilder(); } else { excluded.append(','); }
+                        excluded.append(parseDateTime(date, param(params, "TZID")));
+                    }
+                    break;
+                }
+            } catch (RuntimeException ex) {
+                valid = false; // a value that could not be parsed
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Skips lines up to the END of a nested component.
+     */
+    private void skipComponent(String component) throws IOException {
+        String line, end = "END:" + component;
+        while ((line = readLine()) != null && !line.equalsIgnoreCase(end)) { }
+    }
+
+    /**
+     * Reads the next logical line, joining any folded lines (those starting with a space or tab are a
+     * continuation of the line before).
+     * @return the line or null at the end of the file
+     */
+    private String readLine() throws IOException {
+        String line = lookahead != null ? lookahead : reader.readLine();
+        lookahead = null;
+        if (line == null) { return null; }
+        StringBuilder folded = null;
+        String next;
+        while ((next = reader.readLine()) != null && !next.isEmpty() &&
+                (next.charAt(0) == ' ' || next.charAt(0) == '\t')) {
+            if (folded == null) { folded = new StringBuilder(line); }
+            folded.append(next, 1, next.length());
+        }
+        lookahead = next;
+        return folded == null ? line : folded.toString();
+    }
+
+    /**
+     * Finds the colon separating the name and parameters of a property from its value, skipping
+     * colons in quoted parameter values.
+     */
+    private static int valueStart(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') { quoted = !quoted; } else if (c == ':' && !quoted) { return i; }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value of a parameter of a property, like TZID in "DTSTART;TZID=America/New_York".
+     */
+    private static String param(String[] params, String name) {
+        for (int i = 1; i < params.length; i++) {
+            int eq = params[i].indexOf('=');
+            if (eq > 0 && params[i].substring(0, eq).equalsIgnoreCase(name)) {
+                return params[i].substring(eq + 1).replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a DATE ("20210401", the start of that day), a local DATE-TIME ("20210401T153000") in
+     * the given time zone (or the current time zone if there is none), or a UTC DATE-TIME
+     * ("20210401T153000Z").
+     */
+    static long parseDateTime(String value, String tzid) {
+        long day = DateUtils.epochDayFromCivil(Integer.parseInt(value.substring(0, 4)),
+                Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8)));
+        if (value.length() == 8) { return DateUtils.startOfEpochDay(day); }
+        if (value.charAt(8) != 'T') { throw new IllegalArgumentException("Bad date-time: " + value); }
+        long local = day * DateUtils.DAY_MS + 1000L * (Integer.parseInt(value.substring(9, 11)) * 3600 +
+                Integer.parseInt(value.substring(11, 13)) * 60 + Integer.parseInt(value.substring(13, 15)));
+        if (value.endsWith("Z")) { return local; }
+        if (tzid == null) { return DateUtils.fromLocalMillis(local); }
+        TimeZone zone = TimeZone.getTimeZone(tzid);
+        return local - zone.getOffset(local - zone.getOffset(local));
+    }
+
+    /**
+     * Parses a DURATION like "PT1H30M" or "P1D".
+     * @return the duration in milliseconds
+     */
+    static long parseDuration(String value) {
+        long total = 0, number = 0;
+        boolean negative = value.startsWith("-");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                continue;
+            }
+            switch (c) {
+            case 'W': total += number * 7 * DateUtils.DAY_MS; break;
+            case 'D': total += number * DateUtils.DAY_MS; break;
+            case 'H': total += number * 3600000; break;
+            case 'M': total += number * 60000; break;
+            case 'S': total += number * 1000; break;
+            }
+            number = 0;
+        }
+        return negative ? -total : total;
+    }
+
+    /**
+     * Undoes the escaping of TEXT values.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) { return value; }
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                text.append(c == 'n' || c == 'N' ? '\n' : c);
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Turns a UID into an event id, a UID that is already a UUID is used as is.
+     */
+    private static UUID toUUID(String uid) {
+        try {
+            return UUID.fromString(uid);
+        } catch (IllegalArgumentException ex) {
+            return UUID.nameUUIDFromBytes(uid.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Finds the first category that is the name (or simple name) of an event type.
+     */
+    private static EventType toEventType(String categories, EventType current) {
+        for (String category : categories.split(",")) {
+            category = unescape(category.trim());
+            for (EventType type : EventType.values()) {
+                if (type.name().equalsIgnoreCase(category) || type.simpleName.equalsIgnoreCase(category)) {
+                    return type;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,120 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes events to an iCalendar (.ics) file one at a time so that any number of events can be
+ * written without holding them all in memory. Each event becomes a VEVENT with its id as the UID,
+ * its times in UTC, its name as the SUMMARY, and its type as the CATEGORIES, so the file can be read
+ * back by IcsReader without losing anything but fractions of a second (iCalendar times are to the
+ * second). The calendar is started when the writer is created and finished when it is closed.
+ */
+public class IcsWriter implements Closeable, Flushable {
+    // the longest a line may be (in bytes) before it must be folded onto the next line
+    private static final int MAX_LINE_LENGTH = 75;
+
+    private final Writer writer;
+    private final String stamp = RecurrenceRule.formatDateTime(System.currentTimeMillis());
+
+    /**
+     * @param writer where to write the iCalendar text to
+     * @throws IOException if writing fails
+     */
+    public IcsWriter(Writer writer) throws IOException {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//Moravian CSCI299//MoCalendar//EN");
+    }
+
+    /**
+     * Writes a single event.
+     * @param event the event to write
+     * @throws IOException if writing fails
+     */
+    public void write(Event event) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + event.id);
+        writeLine("DTSTAMP:" + stamp);
+        writeLine("DTSTART:" + RecurrenceRule.formatDateTime(event.startTime.getTime()));
+        if (event.endTime != null) {
+            writeLine("DTEND:" + RecurrenceRule.formatDateTime(event.endTime.getTime()));
+        }
+        writeLine("SUMMARY:" + escape(event.name));
+        if (event.description != null && !event.description.isEmpty()) {
+            writeLine("DESCRIPTION:" + escape(event.description));
+        }
+        writeLine("CATEGORIES:" + event.type.name());
+        if (event.recurrence != null) {
+            writeLine("RRULE:" + event.recurrence);
+            if (event.excludedDates != null && !event.excludedDates.isEmpty()) {
+                StringBuilder line = new StringBuilder("EXDATE:");
+                for (String date : event.excludedDates.split(",")) {
+                    if (line.length() > 7) { line.append(','); }
+                    line.append(RecurrenceRule.formatDateTime(Long.parseLong(date)));
+                }
+                writeLine(line.toString());
+            }
+        }
+        writeLine("END:VEVENT");
+    }
+
+    /**
+     * Writes a content line, folding it into several lines of at most 75 bytes (as UTF-8) as needed.
+     * Each continuation line starts with a space.
+     */
+    private void writeLine(String line) throws IOException {
+        int bytes = 0, start = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            // a surrogate pair is 4 bytes, counted on its first half so the pair is never split
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (size > 0 && bytes + size > MAX_LINE_LENGTH) {
+                writer.write(line, start, i - start);
+                writer.write("\r\n ");
+                start = i;
+                bytes = 1;
+            }
+            bytes += size;
+        }
+        writer.write(line, start, line.length() - start);
+        writer.write("\r\n");
+    }
+
+    /**
+     * Escapes the characters that have a special meaning in TEXT values.
+     */
+    private static String escape(String text) {
+        if (text == null) { return ""; }
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\': case ';': case ',': escaped.append('\\').append(c); break;
+            case '\n': escaped.append("\\n"); break;
+            case '\r': break;
+            default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Finishes the calendar and closes the underlying writer.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        writeLine("END:VCALENDAR");
+        writer.close();
+    }
+}
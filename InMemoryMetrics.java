@@ -0,0 +1,122 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Repository metrics kept in memory as histograms, for looking at how the repository performs on a
+ * real device. Everything is recorded without locking. Use dump() to get a summary, for example to
+ * write to the log, and reset() to start over.
+ */
+public class InMemoryMetrics implements RepositoryMetrics {
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Pool[] POOLS = Pool.values();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LatencyHistogram[] rows = new LatencyHistogram[OPERATIONS.length];
+    private final AtomicLongArray requeries = new AtomicLongArray(OPERATIONS.length);
+    private final LatencyHistogram[] executorWait = new LatencyHistogram[POOLS.length];
+    private final LatencyHistogram[] queueDepth = new LatencyHistogram[POOLS.length];
+
+    public InMemoryMetrics() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            rows[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < POOLS.length; i++) {
+            executorWait[i] = new LatencyHistogram();
+            queueDepth[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long nanos, int rows) {
+        latencies[operation.ordinal()].record(nanos);
+        this.rows[operation.ordinal()].record(rows);
+    }
+
+    @Override
+    public void recordExecutorWait(Pool pool, long nanos, int queueDepth) {
+        executorWait[pool.ordinal()].record(nanos);
+        this.queueDepth[pool.ordinal()].record(queueDepth);
+    }
+
+    @Override
+    public void recordRequery(Operation operation) {
+        requeries.incrementAndGet(operation.ordinal());
+    }
+
+    /**
+     * @param operation the operation
+     * @return the histogram of how long the operation took, in nanoseconds
+     */
+    public LatencyHistogram getLatency(Operation operation) { return latencies[operation.ordinal()]; }
+
+    /**
+     * @param operation the operation
+     * @return the histogram of the number of events the operation loaded or wrote
+     */
+    public LatencyHistogram getRows(Operation operation) { return rows[operation.ordinal()]; }
+
+    /**
+     * @param operation the kind of live query
+     * @return the number of times live queries of that kind were run because the events changed
+     */
+    public long getRequeryCount(Operation operation) { return requeries.get(operation.ordinal()); }
+
+    /**
+     * @param pool the reader pool or the writer
+     * @return the histogram of how long tasks waited for those threads, in nanoseconds
+     */
+    public LatencyHistogram getExecutorWait(Pool pool) { return executorWait[pool.ordinal()]; }
+
+    /**
+     * @param pool the reader pool or the writer
+     * @return the histogram of the number of tasks waiting for those threads
+     */
+    public LatencyHistogram getQueueDepth(Pool pool) { return queueDepth[pool.ordinal()]; }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i].reset();
+            rows[i].reset();
+            requeries.set(i, 0);
+        }
+        for (int i = 0; i < POOLS.length; i++) {
+            executorWait[i].reset();
+            queueDepth[i].reset();
+        }
+    }
+
+    /**
+     * Summarizes everything recorded as a table with one line per operation, giving the number of times
+     * it was done, its latency percentiles in milliseconds, the average number of rows, and the number of
+     * re-queries. Operations that were never done are left out.
+     * @return the summary
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder(String.format(Locale.US, "%-12s %8s %9s %9s %9s %9s %8s %8s%n",
+                "operation", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "rows", "requery"));
+        for (Operation operation : OPERATIONS) {
+            LatencyHistogram latency = getLatency(operation);
+            if (latency.getCount() == 0 && getRequeryCount(operation) == 0) { continue; }
+            text.append(String.format(Locale.US, "%-12s %8d %9.3f %9.3f %9.3f %9.3f %8.1f %8d%n",
+                    operation.name().toLowerCase(Locale.US), latency.getCount(), millis(latency.getPercentile(50)),
+                    millis(latency.getPercentile(90)), millis(latency.getPercentile(99)), millis(latency.getMax()),
+                    getRows(operation).getMean(), getRequeryCount(operation)));
+        }
+        for (Pool pool : POOLS) {
+            LatencyHistogram wait = getExecutorWait(pool), depth = getQueueDepth(pool);
+            text.append(String.format(Locale.US, "%s wait: %d tasks, p50 %.3f ms, p99 %.3f ms, max %.3f ms; " +
+                            "queue depth: p99 %d, max %d%n", pool.name().toLowerCase(Locale.US), wait.getCount(),
+                    millis(wait.getPercentile(50)), millis(wait.getPercentile(99)), millis(wait.getMax()),
+                    depth.getPercentile(99), depth.getMax()));
+        }
+        return text.toString();
+    }
+
+    private static double millis(long nanos) { return nanos / 1e6; }
+}
@@ -0,0 +1,105 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values (like latencies in nanoseconds) with a fixed amount of memory
+ * and about 3% precision at every magnitude, in the style of HdrHistogram. Values are counted in
+ * buckets where each power of two is split into 32 equal sub-buckets, so small values are counted
+ * exactly and large values within 1/32 of their size.
+ *
+ * Recording is lock-free so values can be recorded from many threads at once. Reading while values
+ * are being recorded gives a result that is close to but not exactly a single moment.
+ */
+public class LatencyHistogram {
+    // each power of two is split into 2^SUB_BITS sub-buckets
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // enough buckets for every non-negative long
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single value, negative values are recorded as 0.
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0) { value = 0; }
+        counts.incrementAndGet(bucketOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) { }
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() { return total.get(); }
+
+    /**
+     * @return the largest value recorded, or 0 if none have been
+     */
+    public long getMax() { return max.get(); }
+
+    /**
+     * @return the average of the values recorded, or 0 if none have been
+     */
+    public double getMean() {
+        long count = total.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Gets the value below which the given fraction of the recorded values are.
+     * @param percentile the percentile from 0 to 100
+     * @return the (upper end of the bucket of the) value at that percentile, or 0 if no values have
+     *         been recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0) { return 0; }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) { return Math.min(highestInBucket(bucket), getMax()); }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets every value recorded.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) { counts.set(bucket, 0); }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Finds the bucket a value is counted in. Values less than 2 * SUB_COUNT have a bucket each,
+     * larger values share a bucket with the others that have the same top SUB_BITS + 1 bits.
+     */
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_COUNT) { return (int) value; }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /**
+     * The largest value counted in a bucket.
+     */
+    private static long highestInBucket(int bucket) {
+        if (bucket < 2 * SUB_COUNT) { return bucket; }
+        int shift = bucket / SUB_COUNT - 1;
+        long lowest = (long) (bucket % SUB_COUNT + SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -8,12 +8,16 @@ import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ItemTouchHelper;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.text.TextUtils;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import android.view.LayoutInflater;
@@ -26,7 +30,6 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import java.util.Date;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -57,9 +60,11 @@ public class ListFragment extends Fragment {
 
     // data
     private Date date;
-    private List<Event> events = Collections.emptyList();
     private Callbacks callbacks;
     private RecyclerView recyclerView;
+    private final EventListAdapter adapter = new EventListAdapter();
+    // the day being shown, the list of events switches to a new query whenever this changes
+    private final MutableLiveData<Date> selectedDay = new MutableLiveData<>();
     private LiveData<List<Event>> liveDataItems;
 
 
@@ -100,16 +105,15 @@ public class ListFragment extends Fragment {
     }
 
     /**
-     * Upon creation need to enable the options menu and update the view for the initial date.
+     * Upon creation need to enable the options menu and update the view for the initial date. The
+     * list of events is a single live data that follows the selected day, so only the query for the
+     * current day is ever active no matter how many days have been shown.
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         date = DateUtils.useDateOrNow((Date) getArguments().getSerializable(ARG_DATE));
-//        liveDataItems = CalendarRepository.get().getEventsOnDay(date);
-//        liveDataItems.observe(this, (events) -> {
-//            this.events = events;
-//        });
+        liveDataItems = Transformations.switchMap(selectedDay, day -> CalendarRepository.get().getEventsOnDay(day));
         onDateChange();
         setHasOptionsMenu(true);
     }
@@ -134,7 +138,6 @@ public class ListFragment extends Fragment {
         // Setup the recycler
         recyclerView = base.findViewById(R.id.list_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
-        EventListAdapter adapter = new EventListAdapter();
         recyclerView.setAdapter(adapter);
         ItemTouchHelper itemTouchHelper = new ItemTouchHelper(new SwipeToDeleteCallback(adapter));
         itemTouchHelper.attachToRecyclerView(recyclerView);
@@ -143,17 +146,24 @@ public class ListFragment extends Fragment {
         return base;
     }
 
+    /**
+     * Once the view exists start showing the events. The observer is tied to the view so it goes
+     * away with the view instead of piling up for the life of the fragment.
+     */
+    @Override
+    public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        liveDataItems.observe(getViewLifecycleOwner(), adapter::submitList);
+    }
+
     /**
      * When the date is changed for this fragment we need to grab a new list of events and update
-     * the UI.
+     * the UI. Changing the selected day makes the list switch over to that day's events (dropping
+     * the query for the previous day). The adapter diffs the new list against the old one in the
+     * background so only the rows that actually changed are rebound.
      */
     private void onDateChange() {
-        // TODO
-        liveDataItems = CalendarRepository.get().getEventsOnDay(date);
-        liveDataItems.observe(this, (events) -> {
-            this.events = events;
-            recyclerView.getAdapter().notifyDataSetChanged(); // is this how we update UI?
-        });
+        selectedDay.setValue(date);
     }
 
     // TODO: some code for (un)registering callbacks?
@@ -178,7 +188,6 @@ public class ListFragment extends Fragment {
             event.endTime = new Date(this.date.getTime() + 3600000);
             CalendarRepository.get().addEvent(event);
             callbacks.openIndividualEvent(event);
-            recyclerView.getAdapter().notifyDataSetChanged();
             return true;
         } else if (item.getItemId() == R.id.new_assignment) {
             Event event = new Event();
@@ -186,7 +195,6 @@ public class ListFragment extends Fragment {
             event.type = EventType.ASSIGNMENT;
             CalendarRepository.get().addEvent(event);
             callbacks.openIndividualEvent(event);
-            recyclerView.getAdapter().notifyDataSetChanged();
             return true;
         } else {
             return super.onOptionsItemSelected(item);
@@ -285,9 +293,36 @@ public class ListFragment extends Fragment {
 
 
     /**
-     * The adapter for the items list to be displayed in a RecyclerView.
+     * Decides which rows changed between two lists of events. Rows are the same item if they are
+     * the same event (same id, and for repeating events the same occurrence) and only need to be
+     * rebound if something displayed changed.
+     */
+    private static class EventDiffCallback extends DiffUtil.ItemCallback<Event> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Event oldEvent, @NonNull Event newEvent) {
+            return oldEvent.id.equals(newEvent.id) &&
+                    (newEvent.recurrence == null || oldEvent.startTime.equals(newEvent.startTime));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Event oldEvent, @NonNull Event newEvent) {
+            return oldEvent.type == newEvent.type &&
+                    oldEvent.startTime.equals(newEvent.startTime) &&
+                    Objects.equals(oldEvent.endTime, newEvent.endTime) &&
+                    oldEvent.name.equals(newEvent.name) &&
+                    oldEvent.description.equals(newEvent.description);
+        }
+    }
+
+    /**
+     * The adapter for the items list to be displayed in a RecyclerView. New lists are given to it
+     * with submitList() and it works out the changes on a background thread.
      */
-    private class EventListAdapter extends RecyclerView.Adapter<EventViewHolder> {
+    private class EventListAdapter extends ListAdapter<Event, EventViewHolder> {
+        EventListAdapter() {
+            super(new EventDiffCallback());
+        }
+
         /**
          * To create the view holder we inflate the layout we want to use for
          * each item and then return an ItemViewHolder holding the inflated
@@ -310,28 +345,23 @@ public class ListFragment extends Fragment {
          */
         @Override
         public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
-            Event event = events.get(position);
+            Event event = getItem(position);
             holder.event = event;
             holder.name.setText(event.name);
             holder.icon.setImageResource(event.type.iconResourceId);
             holder.description.setText(event.description);
             holder.startTime.setText(DateUtils.toTimeString(event.startTime));
-            if (event.endTime != null)
-                holder.endTime.setText(DateUtils.toTimeString(event.endTime));
-        }
-
-        /**
-         * @return the total number of items to be displayed in the list
-         */
-        @Override
-        public int getItemCount() {
-            return ListFragment.this.events.size();
+            holder.endTime.setText(event.endTime != null ? DateUtils.toTimeString(event.endTime) : "");
         }
 
-
         public void deleteItem(int position) {
-            CalendarRepository.get().removeEvent(ListFragment.this.events.get(position));
-            notifyItemRemoved(position);
+            Event event = getItem(position);
+            if (event.recurrence != null) {
+                // only this occurrence is removed, not the whole series
+                CalendarRepository.get().removeOccurrence(event);
+            } else {
+                CalendarRepository.get().removeEvent(event);
+            }
         }
 
         // TODO: some code for the swipe-to-delete?
@@ -0,0 +1,399 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A rule for how an event repeats. This supports a subset of the RRULE property of iCalendar
+ * (RFC 5545): FREQ of DAILY, WEEKLY, or MONTHLY along with INTERVAL, BYDAY, COUNT, and UNTIL, for
+ * example "FREQ=WEEKLY;BYDAY=MO,WE,FR;UNTIL=20211210T235959Z". The dates to skip (EXDATE) are kept
+ * alongside the rule as a comma-separated list of the start times (in milliseconds) of the skipped
+ * occurrences.
+ *
+ * A repeating event is stored once as the first occurrence along with its rule. The occurrences are
+ * never stored, they are generated as needed by an OccurrenceIterator which only walks the part of
+ * the series that is asked for. Each occurrence starts at the same local (wall clock) time as the
+ * first one, even across daylight saving time changes.
+ */
+public class RecurrenceRule {
+    /**
+     * How often the event repeats.
+     */
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    // the two letter names of the days of the week as used by BYDAY, starting with Sunday
+    private static final String[] DAY_NAMES = { "SU", "MO", "TU", "WE", "TH", "FR", "SA" };
+    // the most periods in a row without an occurrence before giving up on a rule that never matches
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int[] byDay; // weekday (0 = Sunday) + 7 * ordinal within the month (0 for every)
+    private final int count; // 0 if not limited by count
+    private final long until; // Long.MAX_VALUE if not limited by date
+    private final long[] excluded; // sorted
+
+    private RecurrenceRule(Frequency frequency, int interval, int[] byDay, int count, long until, long[] excluded) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.byDay = byDay;
+        this.count = count;
+        this.until = until;
+        this.excluded = excluded;
+    }
+
+    /**
+     * Parses a recurrence rule.
+     * @param rule the RRULE value like "FREQ=DAILY;COUNT=5"
+     * @param excludedDates comma-separated start times in milliseconds of occurrences to skip, or null
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the rule is not valid or uses unsupported parts
+     */
+    public static RecurrenceRule parse(@NonNull String rule, String excludedDates) {
+        Frequency frequency = null;
+        int interval = 1, count = 0;
+        long until = Long.MAX_VALUE;
+        int[] byDay = new int[0];
+        for (String part : rule.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq < 0) { throw new IllegalArgumentException("Bad RRULE part: " + part); }
+            String name = part.substring(0, eq).trim().toUpperCase(Locale.US);
+            String value = part.substring(eq + 1).trim().toUpperCase(Locale.US);
+            switch (name) {
+            case "FREQ": frequency = Frequency.valueOf(value); break;
+            case "INTERVAL": interval = Integer.parseInt(value); break;
+            case "COUNT": count = Integer.parseInt(value); break;
+            case "UNTIL": until = parseDateTime(value); break;
+            case "BYDAY": byDay = parseByDay(value); break;
+            case "WKST": if (!value.equals("MO")) { throw new IllegalArgumentException("Only WKST=MO is supported"); } break;
+            default: throw new IllegalArgumentException("Unsupported RRULE part: " + name);
+            }
+        }
+        if (frequency == null) { throw new IllegalArgumentException("RRULE is missing FREQ"); }
+        if (interval < 1 || count < 0) { throw new IllegalArgumentException("Bad INTERVAL or COUNT"); }
+        for (int day : byDay) {
+            if (Math.floorDiv(day, 7) != 0 && frequency != Frequency.MONTHLY) {
+                throw new IllegalArgumentException("Numbered BYDAY is only supported for MONTHLY");
+            }
+        }
+        return new RecurrenceRule(frequency, interval, byDay, count, until, parseExcluded(excludedDates));
+    }
+
+    private static int[] parseByDay(String value) {
+        String[] days = value.split(",");
+        int[] byDay = new int[days.length];
+        for (int i = 0; i < days.length; i++) {
+            String day = days[i].trim();
+            int weekday = Arrays.asList(DAY_NAMES).indexOf(day.substring(Math.max(0, day.length() - 2)));
+            if (weekday < 0) { throw new IllegalArgumentException("Bad BYDAY: " + day); }
+            int ordinal = day.length() > 2 ? Integer.parseInt(day.substring(0, day.length() - 2).replace("+", "")) : 0;
+            if (ordinal < -5 || ordinal > 5) { throw new IllegalArgumentException("Bad BYDAY: " + day); }
+            byDay[i] = weekday + 7 * ordinal;
+        }
+        return byDay;
+    }
+
+    private static long[] parseExcluded(String excludedDates) {
+        if (excludedDates == null || excludedDates.trim().isEmpty()) { return new long[0]; }
+        String[] dates = excludedDates.split(",");
+        long[] excluded = new long[dates.length];
+        for (int i = 0; i < dates.length; i++) { excluded[i] = Long.parseLong(dates[i].trim()); }
+        Arrays.sort(excluded);
+        return excluded;
+    }
+
+    /**
+     * Parses an iCalendar DATE ("20211231") or DATE-TIME ("20211231T235959" in local time or
+     * "20211231T235959Z" in UTC). A DATE is taken as the very end of that day.
+     */
+    static long parseDateTime(String value) {
+        if (value.length() < 8) { throw new IllegalArgumentException("Bad date: " + value); }
+        long day = DateUtils.epochDayFromCivil(Integer.parseInt(value.substring(0, 4)),
+                Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8)));
+        if (value.length() == 8) { return DateUtils.startOfEpochDay(day + 1) - 1; }
+        if (value.length() < 15 || value.charAt(8) != 'T') { throw new IllegalArgumentException("Bad date-time: " + value); }
+        long time = day * DateUtils.DAY_MS + 1000L * (Integer.parseInt(value.substring(9, 11)) * 3600 +
+                Integer.parseInt(value.substring(11, 13)) * 60 + Integer.parseInt(value.substring(13, 15)));
+        return value.endsWith("Z") ? time : DateUtils.fromLocalMillis(time);
+    }
+
+    /**
+     * Formats a date/time as an iCalendar UTC DATE-TIME like "20211231T235959Z".
+     */
+    static String formatDateTime(long millis) {
+        int[] ymd = DateUtils.civilFromEpochDay(Math.floorDiv(millis, DateUtils.DAY_MS));
+        long seconds = Math.floorMod(millis, DateUtils.DAY_MS) / 1000;
+        return String.format(Locale.US, "%04d%02d%02dT%02d%02d%02dZ", ymd[0], ymd[1], ymd[2],
+                seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    /**
+     * @return the RRULE value for this rule (without the excluded dates)
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) { rule.append(";INTERVAL=").append(interval); }
+        if (byDay.length > 0) {
+            rule.append(";BYDAY=");
+            for (int i = 0; i < byDay.length; i++) {
+                if (i > 0) { rule.append(','); }
+                if (Math.floorDiv(byDay[i], 7) != 0) { rule.append(Math.floorDiv(byDay[i], 7)); }
+                rule.append(DAY_NAMES[Math.floorMod(byDay[i], 7)]);
+            }
+        }
+        if (count > 0) { rule.append(";COUNT=").append(count); }
+        if (until != Long.MAX_VALUE) { rule.append(";UNTIL=").append(formatDateTime(until)); }
+        return rule.toString();
+    }
+
+    /**
+     * Gets the end of the last occurrence of the series.
+     * @param seriesStart the start time of the first occurrence in milliseconds
+     * @param duration the length of each occurrence in milliseconds
+     * @return the end of the last occurrence in milliseconds, or Long.MAX_VALUE if the series never ends
+     */
+    public long getSeriesEnd(long seriesStart, long duration) {
+        if (count == 0) {
+            return until == Long.MAX_VALUE ? Long.MAX_VALUE : until + duration;
+        }
+        long last = seriesStart;
+        OccurrenceIterator occurrences = occurrences(seriesStart, seriesStart, true);
+        while (occurrences.hasNext()) { last = occurrences.next(); }
+        return last + duration;
+    }
+
+    /**
+     * Gets an iterator over the start times of the occurrences of the series, in order, starting
+     * with the first one that starts at or after the given time. Excluded dates are skipped.
+     * @param seriesStart the start time of the first occurrence in milliseconds
+     * @param from the earliest start time wanted
+     * @return an iterator of the start times in milliseconds
+     */
+    public OccurrenceIterator occurrences(long seriesStart, long from) {
+        return occurrences(seriesStart, from, false);
+    }
+
+    private OccurrenceIterator occurrences(long seriesStart, long from, boolean includeExcluded) {
+        return new OccurrenceIterator(seriesStart, from, includeExcluded);
+    }
+
+    /**
+     * Iterates over the start times of the occurrences of a series without creating any objects per
+     * occurrence. Occurrences are generated one period (day, week, or month) at a time and if the
+     * series is not limited by COUNT the iterator jumps straight to the period containing the first
+     * wanted time.
+     */
+    public class OccurrenceIterator {
+        private final long firstDay;
+        private final long timeOfDay;
+        private final long from;
+        private final boolean includeExcluded;
+        private final long[] days = new long[31]; // candidate days of the current period
+        private int dayCount = 0, dayIndex = 0;
+        private long period;
+        private int generated = 0; // number of occurrences so far, counting from the first
+        private long next;
+        private boolean done = false;
+
+        private OccurrenceIterator(long seriesStart, long from, boolean includeExcluded) {
+            this.firstDay = DateUtils.toEpochDay(seriesStart);
+            this.timeOfDay = DateUtils.getMillisOfDay(seriesStart);
+            this.from = from;
+            this.includeExcluded = includeExcluded;
+            // with no COUNT nothing before the wanted time matters so skip right to it
+            period = count == 0 && from > seriesStart ? Math.max(0, periodOf(DateUtils.toEpochDay(from)) - 1) : 0;
+            fillPeriod();
+            advance();
+        }
+
+        /**
+         * @return true if there is another occurrence
+         */
+        public boolean hasNext() { return !done; }
+
+        /**
+         * @return the start time in milliseconds of the next occurrence
+         */
+        public long next() {
+            if (done) { throw new java.util.NoSuchElementException(); }
+            long current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            int emptyPeriods = 0;
+            while (true) {
+                if (dayIndex >= dayCount) {
+                    if (++emptyPeriods > MAX_EMPTY_PERIODS) { done = true; return; }
+                    period++;
+                    fillPeriod();
+                    continue;
+                }
+                long day = days[dayIndex++];
+                if (day < firstDay) { continue; }
+                long start = DateUtils.fromLocalMillis(day * DateUtils.DAY_MS + timeOfDay);
+                if (start > until || (count > 0 && generated >= count)) { done = true; return; }
+                generated++;
+                emptyPeriods = 0;
+                if (start < from || (!includeExcluded && Arrays.binarySearch(excluded, start) >= 0)) { continue; }
+                next = start;
+                return;
+            }
+        }
+
+        /**
+         * Gets the number of the period containing a day (possibly negative).
+         */
+        private long periodOf(long day) {
+            switch (frequency) {
+            case DAILY: return Math.floorDiv(day - firstDay, interval);
+            case WEEKLY: return Math.floorDiv(Math.floorDiv(day - weekStart(firstDay), 7), interval);
+            default:
+                int[] first = DateUtils.civilFromEpochDay(firstDay), ymd = DateUtils.civilFromEpochDay(day);
+                return Math.floorDiv((ymd[0] - first[0]) * 12L + ymd[1] - first[1], interval);
+            }
+        }
+
+        /**
+         * Puts the candidate days of the current period into days, in order.
+         */
+        private void fillPeriod() {
+            dayCount = 0;
+            dayIndex = 0;
+            switch (frequency) {
+            case DAILY: {
+                long day = firstDay + period * interval;
+                if (byDay.length == 0 || matchesWeekday(day)) { days[dayCount++] = day; }
+                break;
+            }
+            case WEEKLY: {
+                long start = weekStart(firstDay) + period * 7 * interval;
+                for (long day = start; day < start + 7; day++) {
+                    if (byDay.length == 0 ? weekday(day) == weekday(firstDay) : matchesWeekday(day)) {
+                        days[dayCount++] = day;
+                    }
+                }
+                break;
+            }
+            case MONTHLY: {
+                int[] first = DateUtils.civilFromEpochDay(firstDay);
+                long month = first[0] * 12L + first[1] - 1 + period * interval;
+                int year = (int) Math.floorDiv(month, 12), monthOfYear = (int) Math.floorMod(month, 12) + 1;
+                long monthStart = DateUtils.epochDayFromCivil(year, monthOfYear, 1);
+                int length = (int) (DateUtils.epochDayFromCivil(year + monthOfYear / 12, monthOfYear % 12 + 1, 1) - monthStart);
+                for (int dayOfMonth = 1; dayOfMonth <= length; dayOfMonth++) {
+                    long day = monthStart + dayOfMonth - 1;
+                    if (byDay.length == 0 ? dayOfMonth == first[2] : matchesMonthDay(day, dayOfMonth, length)) {
+                        days[dayCount++] = day;
+                    }
+                }
+                break;
+            }
+            }
+        }
+
+        private boolean matchesWeekday(long day) {
+            int weekday = weekday(day);
+            for (int d : byDay) {
+                if (Math.floorMod(d, 7) == weekday) { return true; }
+            }
+            return false;
+        }
+
+        private boolean matchesMonthDay(long day, int dayOfMonth, int length) {
+            int weekday = weekday(day);
+            for (int d : byDay) {
+                int ordinal = Math.floorDiv(d, 7), dayWeekday = Math.floorMod(d, 7);
+                if (dayWeekday != weekday) { continue; }
+                if (ordinal == 0 ||
+                        (ordinal > 0 && (dayOfMonth - 1) / 7 + 1 == ordinal) ||
+                        (ordinal < 0 && (length - dayOfMonth) / 7 + 1 == -ordinal)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Replaces every repeating event in a list with its occurrences that overlap a range. Events that
+     * do not repeat are kept as they are. Each occurrence is a copy of the repeating event with the
+     * same id but the start and end times of that occurrence.
+     * @param events the events, some of which may repeat
+     * @param start the start of the range in milliseconds
+     * @param end the end of the range in milliseconds (exclusive), see EventIntervalIndex.overlapping()
+     * @return the list of events and occurrences, ordered by start time
+     */
+    public static List<Event> expand(List<Event> events, long start, long end) {
+        boolean repeating = false;
+        List<Event> expanded = new ArrayList<>(events.size());
+        for (Event event : events) {
+            RecurrenceRule rule = null;
+            if (event.recurrence != null) {
+                try {
+                    rule = parse(event.recurrence, event.excludedDates);
+                } catch (IllegalArgumentException ex) {
+                    // a rule that cannot be understood is treated as if the event does not repeat
+                }
+            }
+            if (rule == null) {
+                expanded.add(event);
+                continue;
+            }
+            repeating = true;
+            long seriesStart = event.startTime.getTime();
+            long duration = event.endTime == null ? 0 : Math.max(0, event.endTime.getTime() - seriesStart);
+            OccurrenceIterator occurrences = rule.occurrences(seriesStart, start - duration);
+            while (occurrences.hasNext()) {
+                long occurrence = occurrences.next();
+                if (occurrence >= end) { break; }
+                if (EventIntervalIndex.overlaps(occurrence, occurrence + duration, start, end)) {
+                    expanded.add(occurrenceOf(event, occurrence, duration));
+                }
+            }
+        }
+        if (repeating) {
+            Collections.sort(expanded, (a, b) -> Long.compare(a.startTime.getTime(), b.startTime.getTime()));
+        }
+        return expanded;
+    }
+
+    /**
+     * Makes a copy of a repeating event for one of its occurrences.
+     */
+    private static Event occurrenceOf(Event series, long start, long duration) {
+        Event event = new Event();
+        event.id = series.id;
+        event.startTime = new Date(start);
+        event.endTime = series.endTime == null ? null : new Date(start + duration);
+        event.name = series.name;
+        event.type = series.type;
+        event.description = series.description;
+        event.recurrence = series.recurrence;
+        event.excludedDates = series.excludedDates;
+        return event;
+    }
+
+    /**
+     * @return the day of the week of an epoch-day, 0 for Sunday to 6 for Saturday
+     */
+    private static int weekday(long day) {
+        return (int) Math.floorMod(day + 4, 7); // day 0 was a Thursday
+    }
+
+    /**
+     * @return the Monday on or before an epoch-day
+     */
+    private static long weekStart(long day) {
+        return day - Math.floorMod(weekday(day) - 1, 7);
+    }
+}
@@ -0,0 +1,64 @@
+package edu.moravian.csci299.mocalendar;
+
+/**
+ * Receives measurements of how the repository is performing: how long each query and write takes
+ * and how many rows it touches, how long tasks wait for the background thread, and how often live
+ * queries are re-run because the events changed. Set one with CalendarRepository.setMetrics(), by
+ * default NONE is used which ignores everything and costs nothing (the repository does not even
+ * read the clock).
+ *
+ * The methods are called on whatever thread did the work so implementations must be thread-safe
+ * and should be quick.
+ */
+public interface RepositoryMetrics {
+    /**
+     * The operations of the repository that are timed.
+     */
+    enum Operation {
+        LOAD_INDEX, RANGE_QUERY, DAY_QUERY, CONFLICT_QUERY, DENSITY_QUERY, SEARCH, PAGE_LOAD, WRITE_BATCH
+    }
+
+    /**
+     * The background threads of the repository: the pool that runs queries and the single thread
+     * that makes every write.
+     */
+    enum Pool {
+        READ, WRITE
+    }
+
+    /**
+     * Records a single operation.
+     * @param operation what was done
+     * @param nanos how long it took in nanoseconds
+     * @param rows the number of events loaded or written
+     */
+    void recordLatency(Operation operation, long nanos, int rows);
+
+    /**
+     * Records a task starting on one of the background threads.
+     * @param pool which threads the task ran on
+     * @param nanos how long the task waited to start in nanoseconds
+     * @param queueDepth the number of tasks still waiting for the same threads
+     */
+    void recordExecutorWait(Pool pool, long nanos, int queueDepth);
+
+    /**
+     * Records a live query being run because the events (or the time zone) changed.
+     * @param operation the kind of query
+     */
+    void recordRequery(Operation operation);
+
+    /**
+     * Metrics that ignore everything.
+     */
+    RepositoryMetrics NONE = new RepositoryMetrics() {
+        @Override
+        public void recordLatency(Operation operation, long nanos, int rows) { }
+
+        @Override
+        public void recordExecutorWait(Pool pool, long nanos, int queueDepth) { }
+
+        @Override
+        public void recordRequery(Operation operation) { }
+    };
+}
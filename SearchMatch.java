@@ -0,0 +1,52 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+/**
+ * An event matching a full-text search along with the FTS match information used to rank it. This
+ * is what the DAO returns before the best matches are picked and their snippets are made.
+ */
+public class SearchMatch {
+    // how much more a match in the name counts than one in the description (columns in EventFts order)
+    private static final double[] COLUMN_WEIGHTS = { 4.0, 1.0 };
+
+    /**
+     * The id of the matching event.
+     */
+    @NonNull
+    public UUID id;
+    /**
+     * The result of matchinfo(EventFts, 'pcx'): the number of phrases and columns, then for each
+     * phrase and column the hits in this event, the hits in all events, and the number of events with
+     * a hit, all as 32-bit integers in the native byte order.
+     */
+    @NonNull
+    public byte[] matchInfo;
+
+    /**
+     * Scores how well the event matches. Each hit of a phrase counts more the fewer hits that phrase
+     * has across all events (so rare words count more than common ones) and hits in the name count
+     * more than hits in the description. Where in the text the hits are does not matter.
+     * @return the score, higher is a better match
+     */
+    public double score() {
+        ByteBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = info.getInt(0), columns = info.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int at = 4 * (2 + 3 * (phrase * columns + column));
+                int hits = info.getInt(at), allHits = info.getInt(at + 4);
+                if (hits > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hits / allHits;
+                }
+            }
+        }
+        return score;
+    }
+}
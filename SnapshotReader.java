@@ -0,0 +1,169 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Reads the events in a binary snapshot written by SnapshotWriter (which describes the format) one at
+ * a time so that any number of events can be read in constant memory. The channel is read a large
+ * block at a time into a buffer that the records are decoded from directly.
+ *
+ * A snapshot from a newer version of the format, with a bad header, cut short, or otherwise corrupt
+ * causes an IOException, at the latest when the end is reached, so a caller that reads to the end
+ * before trusting the events never uses a partial snapshot.
+ */
+public class SnapshotReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long previousStart = 0;
+    private int count = 0;
+    private boolean finished = false;
+
+    /**
+     * @param channel the channel to read the snapshot from, starting at its current position
+     * @throws IOException if reading fails or the channel does not start with a snapshot header
+     */
+    public SnapshotReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip(); // nothing has been read yet
+        if (!fill(SnapshotWriter.MAGIC.length + 1)) { throw new IOException("Not a snapshot: too short"); }
+        for (byte b : SnapshotWriter.MAGIC) {
+            if (buffer.get() != b) { throw new IOException("Not a snapshot: bad header"); }
+        }
+        int version = buffer.get() & 0xFF;
+        if (version > SnapshotWriter.VERSION) { throw new IOException("Unsupported snapshot version " + version); }
+    }
+
+    /**
+     * Reads the next event.
+     * @return the next event, or null once every event has been read
+     * @throws IOException if reading fails or the snapshot is corrupt
+     */
+    public Event next() throws IOException {
+        ByteBuffer record = nextRecord();
+        if (record == null) { return null; }
+        try {
+            Event event = new Event();
+            event.id = new UUID(record.getLong(), record.getLong());
+            long startTime = previousStart + getSigned(record);
+            previousStart = startTime;
+            event.startTime = new Date(startTime);
+            int flags = (int) getVarint(record);
+            event.type = EventType.fromCode((int) getVarint(record));
+            event.name = getString(record);
+            event.description = getString(record);
+            if ((flags & SnapshotWriter.HAS_END_TIME) != 0) { event.endTime = new Date(startTime + getSigned(record)); }
+            if ((flags & SnapshotWriter.HAS_RECURRENCE) != 0) { event.recurrence = getString(record); }
+            if ((flags & SnapshotWriter.HAS_EXCLUDED_DATES) != 0) { event.excludedDates = getString(record); }
+            return event;
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("Corrupt snapshot record " + count, ex);
+        }
+    }
+
+    /**
+     * @return the number of events read so far
+     */
+    public int getCount() { return count; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the next record, checking the count at the end of the snapshot once it is reached.
+     * @return a buffer holding just the next record (positioned after it in the main buffer), or null at the end
+     */
+    private ByteBuffer nextRecord() throws IOException {
+        if (finished) { return null; }
+        long length = readVarint();
+        if (length == 0) {
+            long expected = readVarint();
+            if (expected != count) { throw new IOException("Corrupt snapshot: expected " + expected + " events but found " + count); }
+            finished = true;
+            return null;
+        }
+        if (length > Integer.MAX_VALUE || !fill((int) length)) { throw new IOException("Snapshot cut short in record " + count); }
+        ByteBuffer record = buffer.slice();
+        record.limit((int) length);
+        buffer.position(buffer.position() + (int) length);
+        count++;
+        return record;
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are in the buffer, reading more from the channel
+     * (and growing the buffer) as needed.
+     * @return false if the channel ended first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) { return true; }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(bytes, 2 * buffer.capacity()));
+            bigger.put(buffer);
+            buffer = bigger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) { break; }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Reads an unsigned varint from the main buffer, between records.
+     */
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!fill(1)) { throw new IOException("Snapshot cut short after record " + count); }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) { return value; }
+        }
+        throw new IOException("Corrupt snapshot: bad varint after record " + count);
+    }
+
+    /**
+     * Gets an unsigned varint from within a record.
+     */
+    private static long getVarint(ByteBuffer record) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = record.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) { return value; }
+        }
+        throw new IllegalArgumentException("Bad varint");
+    }
+
+    /**
+     * Gets a zig-zag encoded signed number from within a record.
+     */
+    private static long getSigned(ByteBuffer record) {
+        long value = getVarint(record);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Gets a length-prefixed UTF-8 string from within a record.
+     */
+    private static String getString(ByteBuffer record) {
+        long length = getVarint(record);
+        if (length > record.remaining()) { throw new BufferUnderflowException(); }
+        String string = new String(record.array(), record.arrayOffset() + record.position(), (int) length, StandardCharsets.UTF_8);
+        record.position(record.position() + (int) length);
+        return string;
+    }
+}
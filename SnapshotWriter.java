@@ -0,0 +1,166 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes events to a compact binary snapshot one at a time so that any number of events can be
+ * written in constant memory. The events are encoded into a buffer that is written to the channel
+ * whenever it fills, and SnapshotReader reads them back exactly, including fractions of a second.
+ *
+ * The snapshot starts with the 4 bytes "MOCS" and a version byte. Then each event is a record: its
+ * length in bytes (as a varint) followed by that many bytes holding the 16 bytes of the id, the start
+ * time as a difference from the start time of the previous record, a flags varint saying which of
+ * the optional fields follow, the type code, the name, the description, then the duration (if it has
+ * an end time), the recurrence, and the excluded dates (if it has them). Numbers are varints (7 bits
+ * per byte, lowest first), with signed numbers zig-zag encoded first so small negative numbers stay
+ * small, and strings are a varint length followed by UTF-8. A record of length 0 ends the snapshot
+ * and is followed by the number of records as a varint, so a snapshot cut short is always noticed.
+ *
+ * Since each record starts with its length a reader can skip fields added after its version, so new
+ * fields can be added to the end of a record without changing the version.
+ */
+public class SnapshotWriter implements Closeable {
+    static final byte[] MAGIC = { 'M', 'O', 'C', 'S' };
+    static final int VERSION = 1;
+
+    // the optional fields of a record
+    static final int HAS_END_TIME = 1;
+    static final int HAS_RECURRENCE = 2;
+    static final int HAS_EXCLUDED_DATES = 4;
+
+    // the most bytes a varint can take
+    static final int MAX_VARINT_LENGTH = 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer record = ByteBuffer.allocate(256); // each record is built here to find its length
+    private long previousStart = 0;
+    private int count = 0;
+
+    /**
+     * @param channel the channel to write the snapshot to, starting at its current position
+     */
+    public SnapshotWriter(FileChannel channel) {
+        this.channel = channel;
+        buffer.put(MAGIC).put((byte) VERSION);
+    }
+
+    /**
+     * Writes a single event.
+     * @param event the event to write
+     * @throws IOException if writing fails
+     */
+    public void write(Event event) throws IOException {
+        byte[] name = event.name.getBytes(StandardCharsets.UTF_8);
+        byte[] description = event.description.getBytes(StandardCharsets.UTF_8);
+        byte[] recurrence = event.recurrence == null ? null : event.recurrence.getBytes(StandardCharsets.UTF_8);
+        byte[] excludedDates = event.excludedDates == null ? null : event.excludedDates.getBytes(StandardCharsets.UTF_8);
+        int flags = (event.endTime != null ? HAS_END_TIME : 0) | (recurrence != null ? HAS_RECURRENCE : 0) |
+                (excludedDates != null ? HAS_EXCLUDED_DATES : 0);
+        int size = 16 + 6 * MAX_VARINT_LENGTH + name.length + description.length +
+                (recurrence == null ? 0 : MAX_VARINT_LENGTH + recurrence.length) +
+                (excludedDates == null ? 0 : MAX_VARINT_LENGTH + excludedDates.length);
+        if (record.capacity() < size) { record = ByteBuffer.allocate(Math.max(size, 2 * record.capacity())); }
+
+        record.clear();
+        record.putLong(event.id.getMostSignificantBits()).putLong(event.id.getLeastSignificantBits());
+        long startTime = event.startTime.getTime();
+        putSigned(record, startTime - previousStart);
+        previousStart = startTime;
+        putVarint(record, flags);
+        putVarint(record, event.type.code);
+        putString(record, name);
+        putString(record, description);
+        if (event.endTime != null) { putSigned(record, event.endTime.getTime() - startTime); }
+        if (recurrence != null) { putString(record, recurrence); }
+        if (excludedDates != null) { putString(record, excludedDates); }
+        record.flip();
+
+        reserve(MAX_VARINT_LENGTH);
+        putVarint(buffer, record.remaining());
+        if (record.remaining() > buffer.remaining()) {
+            flushBuffer();
+            if (record.remaining() > buffer.remaining()) {
+                while (record.hasRemaining()) { channel.write(record); }
+            }
+        }
+        if (record.hasRemaining()) { buffer.put(record); }
+        count++;
+    }
+
+    /**
+     * @return the number of events written so far
+     */
+    public int getCount() { return count; }
+
+    /**
+     * Writes the end of the snapshot and everything still buffered to the channel, forcing it to the
+     * storage device. The channel is not closed.
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        reserve(2 * MAX_VARINT_LENGTH);
+        putVarint(buffer, 0);
+        putVarint(buffer, count);
+        flushBuffer();
+        channel.force(false);
+    }
+
+    /**
+     * Closes the channel. This does not finish the snapshot, so if writing it failed part way the
+     * snapshot is left without an end and SnapshotReader rejects it.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Makes sure there is room for at least the given number of bytes in the buffer.
+     */
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) { flushBuffer(); }
+    }
+
+    /**
+     * Writes everything in the buffer to the channel and empties it.
+     */
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+        buffer.clear();
+    }
+
+    /**
+     * Puts an unsigned varint into the buffer.
+     */
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Puts a signed number into the buffer as a zig-zag encoded varint.
+     */
+    static void putSigned(ByteBuffer buffer, long value) {
+        putVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Puts a string's UTF-8 bytes into the buffer, preceded by their length.
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+}
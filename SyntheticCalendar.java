@@ -0,0 +1,124 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates a calendar of made-up but realistic events for filling the database when measuring how
+ * it performs with many events. The same seed always gives the same events (in the same time zone).
+ * The events are generated one at a time so any number of them can be fed to the repository (for
+ * example through CalendarRepository.addEvents() in batches) without holding them all in memory.
+ *
+ * The mix is roughly that of a student's calendar: mostly classes and assignments (which have no end
+ * time), some labs, practices, clubs, and office hours, the occasional exam or presentation, and
+ * holidays and competitions that last several days.
+ */
+public class SyntheticCalendar implements Iterator<Event> {
+    // the types and how often (out of the total of the weights) each is generated
+    private static final EventType[] TYPES = {
+            EventType.CLASS, EventType.ASSIGNMENT, EventType.READING, EventType.PROGRAMMING, EventType.ESSAY,
+            EventType.LAB, EventType.ATHLETIC_PRACTICE, EventType.MUSIC_PRACTICE, EventType.CLUB,
+            EventType.OFFICE_HOURS, EventType.GENERIC, EventType.EXAM, EventType.PRESENTATION,
+            EventType.COMPETITION, EventType.HOLIDAY,
+    };
+    private static final int[] WEIGHTS = { 30, 12, 6, 5, 3, 8, 7, 4, 6, 5, 6, 3, 2, 2, 1 };
+    private static final int TOTAL_WEIGHT;
+    static {
+        int total = 0;
+        for (int weight : WEIGHTS) { total += weight; }
+        TOTAL_WEIGHT = total;
+    }
+    private static final String[] WORDS = {
+            "chapter", "review", "project", "meeting", "notes", "group", "final", "draft", "room", "bring",
+            "laptop", "quiz", "problems", "section", "report", "slides", "practice", "team", "library", "online",
+    };
+
+    private final Random random;
+    private final int count;
+    private final long firstDay;
+    private final int days;
+    private int generated = 0;
+
+    /**
+     * @param seed the seed of the random numbers, the same seed gives the same events
+     * @param count the number of events to generate
+     * @param firstDay the local epoch-day of the first day that events can be on
+     * @param days the number of days the events are spread over
+     */
+    public SyntheticCalendar(long seed, int count, long firstDay, int days) {
+        if (count < 0 || days <= 0) { throw new IllegalArgumentException("Bad count or number of days"); }
+        this.random = new Random(seed);
+        this.count = count;
+        this.firstDay = firstDay;
+        this.days = days;
+    }
+
+    @Override
+    public boolean hasNext() { return generated < count; }
+
+    @Override
+    public Event next() {
+        if (!hasNext()) { throw new NoSuchElementException(); }
+        generated++;
+        Event event = new Event();
+        event.id = new UUID((random.nextLong() & ~0xF000L) | 0x4000L, // version 4 (random) UUIDs
+                (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+        event.type = pickType();
+        event.name = event.type.simpleName + " " + generated;
+        event.description = random.nextInt(3) == 0 ? "" : makeDescription();
+        long day = firstDay + random.nextInt(days);
+        long dayStart = DateUtils.startOfEpochDay(day);
+        switch (event.type) {
+        case ASSIGNMENT: case READING: case PROGRAMMING: case ESSAY:
+            // due at the start of class or at midnight, with no end time
+            event.startTime = new Date(random.nextBoolean() ? dayStart + minutes(8 * 60 + 60 * random.nextInt(8)) :
+                    DateUtils.startOfEpochDay(day + 1) - minutes(1));
+            event.endTime = null;
+            break;
+        case HOLIDAY: case COMPETITION:
+            // whole days, often more than one
+            int length = event.type == EventType.HOLIDAY ? 1 + random.nextInt(5) : 1 + random.nextInt(3);
+            event.startTime = new Date(dayStart);
+            event.endTime = new Date(DateUtils.startOfEpochDay(day + length));
+            break;
+        case CLASS:
+            event.startTime = new Date(dayStart + minutes(8 * 60 + 30 * random.nextInt(17)));
+            event.endTime = new Date(event.startTime.getTime() + minutes(random.nextBoolean() ? 50 : 75));
+            break;
+        default:
+            event.startTime = new Date(dayStart + minutes(7 * 60 + 15 * random.nextInt(60)));
+            event.endTime = new Date(event.startTime.getTime() + minutes(30 + 15 * random.nextInt(11)));
+            break;
+        }
+        return event;
+    }
+
+    /**
+     * Picks a type of event using the weights of the types.
+     */
+    private EventType pickType() {
+        int pick = random.nextInt(TOTAL_WEIGHT);
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            pick -= WEIGHTS[i];
+            if (pick < 0) { return TYPES[i]; }
+        }
+        return EventType.GENERIC;
+    }
+
+    /**
+     * Makes a description of a few random words.
+     */
+    private String makeDescription() {
+        StringBuilder description = new StringBuilder();
+        for (int i = 2 + random.nextInt(10); i > 0; i--) {
+            if (description.length() > 0) { description.append(' '); }
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.toString();
+    }
+
+    private static long minutes(int minutes) { return minutes * 60000L; }
+}
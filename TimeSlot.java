@@ -0,0 +1,37 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.annotation.NonNull;
+
+import java.util.Date;
+
+/**
+ * A span of time with nothing scheduled in it, as found by FreeSlotFinder.
+ */
+public class TimeSlot {
+    /**
+     * When the free time starts.
+     */
+    @NonNull
+    public final Date start;
+    /**
+     * When the free time ends (exclusive).
+     */
+    @NonNull
+    public final Date end;
+
+    public TimeSlot(long start, long end) {
+        this.start = new Date(start);
+        this.end = new Date(end);
+    }
+
+    /**
+     * @return the length of the slot in milliseconds
+     */
+    public long getDuration() { return end.getTime() - start.getTime(); }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return DateUtils.toFullDateString(start) + " " + DateUtils.toTimeString(start) + " - " + DateUtils.toTimeString(end);
+    }
+}
@@ -0,0 +1,84 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.TimeZone;
+
+/**
+ * Caches the offset from UTC of a time zone for each (UTC) day that has been looked up. Working out
+ * an offset with TimeZone.getOffset() means searching the zone's transition rules every time, but
+ * an offset almost never changes within a day and when it does (daylight saving time) it changes
+ * once. So for each day the offset at its start and end are remembered along with the instant the
+ * offset changes, after which getting an offset is an array lookup and a comparison.
+ *
+ * The cache is a fixed-size table indexed by day number. Each slot holds an immutable entry so the
+ * cache is safe to use from many threads at once without locking, at worst two threads compute the
+ * same entry.
+ */
+public class TimeZoneOffsetCache {
+    // the number of days remembered, must be a power of two
+    private static final int SIZE = 1024;
+
+    /**
+     * The offsets for a single UTC day.
+     */
+    private static final class Entry {
+        final long day;
+        final int startOffset;
+        final int endOffset;
+        final long transition; // first instant using endOffset
+
+        Entry(long day, int startOffset, int endOffset, long transition) {
+            this.day = day;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.transition = transition;
+        }
+    }
+
+    private final TimeZone zone;
+    private final Entry[] entries = new Entry[SIZE];
+
+    /**
+     * @param zone the time zone to get offsets for
+     */
+    public TimeZoneOffsetCache(TimeZone zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @return the time zone the offsets are for
+     */
+    public TimeZone getZone() { return zone; }
+
+    /**
+     * Gets the offset from UTC at the given instant, the same as TimeZone.getOffset().
+     * @param millis the date/time in milliseconds since the epoch
+     * @return the offset in milliseconds to add to UTC to get the local time
+     */
+    public int getOffset(long millis) {
+        long day = Math.floorDiv(millis, DateUtils.DAY_MS);
+        int slot = (int) day & (SIZE - 1);
+        Entry entry = entries[slot];
+        if (entry == null || entry.day != day) {
+            entry = computeEntry(day);
+            entries[slot] = entry;
+        }
+        return millis < entry.transition ? entry.startOffset : entry.endOffset;
+    }
+
+    /**
+     * Looks up the offsets of a day from the time zone, searching for the instant the offset changes
+     * if it is different at the start and end of the day.
+     */
+    private Entry computeEntry(long day) {
+        long start = day * DateUtils.DAY_MS, end = start + DateUtils.DAY_MS - 1;
+        int startOffset = zone.getOffset(start), endOffset = zone.getOffset(end);
+        if (startOffset == endOffset) {
+            return new Entry(day, startOffset, endOffset, Long.MAX_VALUE);
+        }
+        while (start + 1 < end) {
+            long mid = start + (end - start) / 2;
+            if (zone.getOffset(mid) == startOffset) { start = mid; } else { end = mid; }
+        }
+        return new Entry(day, startOffset, endOffset, end);
+    }
+}
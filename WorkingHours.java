@@ -0,0 +1,61 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Calendar;
+
+/**
+ * The hours of each day (in the current time zone) that free time can be found in, and optionally
+ * which days of the week, for example 9:00 AM to 5:00 PM on weekdays.
+ */
+public class WorkingHours {
+    /**
+     * Every hour of every day.
+     */
+    public static final WorkingHours ALL_DAY = new WorkingHours(0, 24 * 60, 0x7F);
+
+    public final int startMinute; // minutes after midnight that the hours start
+    public final int endMinute; // minutes after midnight that the hours end
+    private final int days; // bit (1 << Calendar.SUNDAY etc - 1) set for each day the hours apply
+
+    private WorkingHours(int startMinute, int endMinute, int days) {
+        if (startMinute < 0 || endMinute > 24 * 60 || startMinute >= endMinute) {
+            throw new IllegalArgumentException("Bad working hours " + startMinute + " to " + endMinute);
+        }
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+        this.days = days;
+    }
+
+    /**
+     * @param startHour the hour (0 to 23) the working hours start at
+     * @param endHour the hour (1 to 24) the working hours end at
+     * @return the working hours between those hours on every day of the week
+     */
+    public static WorkingHours between(int startHour, int endHour) {
+        return new WorkingHours(startHour * 60, endHour * 60, 0x7F);
+    }
+
+    /**
+     * @param daysOfWeek the days of the week, as Calendar.SUNDAY through Calendar.SATURDAY
+     * @return the same hours but only on the given days
+     */
+    public WorkingHours onDays(int... daysOfWeek) {
+        int days = 0;
+        for (int day : daysOfWeek) { days |= 1 << (day - Calendar.SUNDAY); }
+        return new WorkingHours(startMinute, endMinute, days);
+    }
+
+    /**
+     * @return the same hours but only Monday through Friday
+     */
+    public WorkingHours onWeekdays() {
+        return onDays(Calendar.MONDAY, Calendar.TUESDAY, Calendar.WEDNESDAY, Calendar.THURSDAY, Calendar.FRIDAY);
+    }
+
+    /**
+     * @param dayOfWeek the day of the week, Calendar.SUNDAY through Calendar.SATURDAY
+     * @return true if the hours apply on that day
+     */
+    public boolean includes(int dayOfWeek) {
+        return (days & (1 << (dayOfWeek - Calendar.SUNDAY))) != 0;
+    }
+}
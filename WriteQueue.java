@@ -0,0 +1,162 @@
+package edu.moravian.csci299.mocalendar;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Collects the writes made to the repository and commits them in micro-batches. Pending writes are
+ * coalesced by event id so that only the final state of each event is written: several updates to
+ * the same event become one update, an add followed by updates becomes one add of the latest
+ * version, and an add followed by a remove cancels out completely.
+ *
+ * The first write after a flush schedules the next flush on the executor. Everything queued before
+ * that flush starts is committed together in a single transaction, so a burst of edits costs one
+ * commit instead of one per edit.
+ */
+public class WriteQueue {
+    /**
+     * Receives each micro-batch of coalesced writes, on the executor's thread. If it throws, the
+     * futures of every write in the batch fail with that exception.
+     */
+    public interface Flusher {
+        void flush(CalendarRepository.Batch batch);
+    }
+
+    private enum Op { ADD, UPDATE, REMOVE }
+
+    /**
+     * The pending write for a single event.
+     */
+    private static class Write {
+        Op op;
+        Event event;
+
+        Write(Op op, Event event) {
+            this.op = op;
+            this.event = event;
+        }
+    }
+
+    private final Executor executor;
+    private final Flusher flusher;
+    private Map<UUID, Write> pending = new LinkedHashMap<>();
+    private FutureTask<Void> scheduledFlush; // the flush that will pick up the pending writes, null if none
+
+    /**
+     * @param executor the executor the flushes are run on, this should be single-threaded
+     * @param flusher what commits each micro-batch
+     */
+    public WriteQueue(Executor executor, Flusher flusher) {
+        this.executor = executor;
+        this.flusher = flusher;
+    }
+
+    /**
+     * @return the number of events with a write waiting to be committed
+     */
+    public synchronized int size() { return pending.size(); }
+
+    /**
+     * Queues adding an event.
+     * @param event the event to add
+     * @return a future that completes once the write has been committed
+     */
+    public synchronized Future<?> add(Event event) {
+        queue(Op.ADD, event);
+        return scheduleFlush();
+    }
+
+    /**
+     * Queues updating an event.
+     * @param event the event to update
+     * @return a future that completes once the write has been committed
+     */
+    public synchronized Future<?> update(Event event) {
+        queue(Op.UPDATE, event);
+        return scheduleFlush();
+    }
+
+    /**
+     * Queues removing an event.
+     * @param event the event to remove
+     * @return a future that completes once the write has been committed
+     */
+    public synchronized Future<?> remove(Event event) {
+        queue(Op.REMOVE, event);
+        return scheduleFlush();
+    }
+
+    /**
+     * Queues several writes at once. The removes are queued first, then the adds, then the updates.
+     * @param removed the events to remove
+     * @param added the events to add
+     * @param updated the events to update
+     * @return a future that completes once all of the writes have been committed
+     */
+    public synchronized Future<?> queueAll(Collection<Event> removed, Collection<Event> added, Collection<Event> updated) {
+        for (Event event : removed) { queue(Op.REMOVE, event); }
+        for (Event event : added) { queue(Op.ADD, event); }
+        for (Event event : updated) { queue(Op.UPDATE, event); }
+        return scheduleFlush();
+    }
+
+    /**
+     * Merges a new write with whatever is already pending for the same event.
+     */
+    private void queue(Op op, Event event) {
+        Write write = pending.get(event.id);
+        if (write == null) {
+            pending.put(event.id, new Write(op, event));
+            return;
+        }
+        write.event = event;
+        switch (write.op) {
+        case ADD:
+            // the event was never written so removing it means nothing needs to be written
+            if (op == Op.REMOVE) { pending.remove(event.id); }
+            break;
+        case UPDATE:
+            if (op == Op.REMOVE) { write.op = Op.REMOVE; }
+            break;
+        case REMOVE:
+            // the event is still in the database so adding it back just overwrites it
+            if (op == Op.ADD) { write.op = Op.UPDATE; }
+            break;
+        }
+    }
+
+    /**
+     * Makes sure a flush is scheduled for the pending writes.
+     * @return the flush that will commit the pending writes
+     */
+    private Future<?> scheduleFlush() {
+        if (scheduledFlush == null) {
+            scheduledFlush = new FutureTask<>(() -> flusher.flush(drain()), null);
+            executor.execute(scheduledFlush);
+        }
+        return scheduledFlush;
+    }
+
+    /**
+     * Takes all of the pending writes as a batch. Any writes after this go into the next flush.
+     */
+    private synchronized CalendarRepository.Batch drain() {
+        Map<UUID, Write> writes = pending;
+        pending = new LinkedHashMap<>();
+        scheduledFlush = null;
+        CalendarRepository.Batch batch = new CalendarRepository.Batch();
+        for (Write write : writes.values()) {
+            switch (write.op) {
+            case ADD: batch.add(write.event); break;
+            case UPDATE: batch.update(write.event); break;
+            case REMOVE: batch.remove(write.event); break;
+            }
+        }
+        return batch;
+    }
+}
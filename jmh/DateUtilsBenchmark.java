@@ -0,0 +1,232 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * JMH benchmarks of the pure-Java date and conversion hot paths: the epoch-millis DateUtils methods
+ * next to the Calendar code they replaced, zone offsets from TimeZoneOffsetCache next to
+ * TimeZone.getOffset(), the date and time strings, and the CalendarTypeConverter methods Room calls
+ * for every row read or written (dates, event types, and UUIDs, next to storing UUIDs as strings).
+ * None of these touch Android classes, though EventType needs the app's generated R class on the
+ * classpath.
+ *
+ * Run with the GC profiler to see the allocation rate of each, for example
+ * "java -jar benchmarks.jar DateUtilsBenchmark -prof gc" using the jar built by the JMH plugin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilsBenchmark {
+    private static final int SIZE = 1024; // a power of 2 so the next input is found with a mask
+
+    private final long[] times = new long[SIZE];
+    private final Date[] dates = new Date[SIZE];
+    private final UUID[] ids = new UUID[SIZE];
+    private final byte[][] idBytes = new byte[SIZE][];
+    private final String[] idStrings = new String[SIZE];
+    private final Long[] boxedTimes = new Long[SIZE];
+    private final EventType[] types = new EventType[SIZE];
+    private final int[] typeCodes = new int[SIZE];
+    private final CalendarTypeConverter converter = new CalendarTypeConverter();
+    private final TimeZone zone = TimeZone.getDefault();
+    private final TimeZoneOffsetCache offsets = new TimeZoneOffsetCache(zone);
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long start = DateUtils.startOfEpochDay(DateUtils.epochDayFromCivil(2021, 1, 1));
+        for (int i = 0; i < SIZE; i++) {
+            times[i] = start + (long) (random.nextDouble() * 365 * DateUtils.DAY_MS); // a year, crossing DST
+            dates[i] = new Date(times[i]);
+            ids[i] = UUID.randomUUID();
+            idBytes[i] = CalendarTypeConverter.uuidToBytes(ids[i]);
+            idStrings[i] = ids[i].toString();
+            boxedTimes[i] = times[i];
+            types[i] = EventType.values()[random.nextInt(EventType.values().length)];
+            typeCodes[i] = types[i].code;
+        }
+    }
+
+    private int nextIndex() { return next = (next + 1) & (SIZE - 1); }
+
+    ///// combining a date and a time /////
+
+    @Benchmark
+    public long combineDateAndTimeMillis() {
+        int i = nextIndex();
+        return DateUtils.combineDateAndTime(times[i], times[(i + 7) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public Date combineDateAndTimeDate() {
+        int i = nextIndex();
+        return DateUtils.combineDateAndTime(dates[i], dates[(i + 7) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public Date combineDateAndTimeCalendar() {
+        int i = nextIndex();
+        return calendarCombineDateAndTime(dates[i], dates[(i + 7) & (SIZE - 1)]);
+    }
+
+    ///// fixing an end time /////
+
+    @Benchmark
+    public long fixEndTimeMillis() {
+        int i = nextIndex();
+        return DateUtils.fixEndTime(times[i], times[(i + 7) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public Date fixEndTimeDate() {
+        int i = nextIndex();
+        return DateUtils.fixEndTime(dates[i], dates[(i + 7) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public Date fixEndTimeCalendar() {
+        int i = nextIndex();
+        return calendarFixEndTime(dates[i], dates[(i + 7) & (SIZE - 1)]);
+    }
+
+    ///// days and zone offsets /////
+
+    @Benchmark
+    public long startOfDayMillis() {
+        return DateUtils.startOfDay(times[nextIndex()]);
+    }
+
+    @Benchmark
+    public long startOfDayCalendar() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(times[nextIndex()]);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Benchmark
+    public int getOffsetCached() {
+        return offsets.getOffset(times[nextIndex()]);
+    }
+
+    @Benchmark
+    public int getOffsetTimeZone() {
+        return zone.getOffset(times[nextIndex()]);
+    }
+
+    ///// strings /////
+
+    @Benchmark
+    public String toTimeString() {
+        return DateUtils.toTimeString(dates[nextIndex()]);
+    }
+
+    @Benchmark
+    public String toFullDateString() {
+        return DateUtils.toFullDateString(dates[nextIndex()]);
+    }
+
+    ///// the Room type converters for dates and event types /////
+
+    @Benchmark
+    public Long fromDate() {
+        return converter.fromDate(dates[nextIndex()]);
+    }
+
+    @Benchmark
+    public Date toDate() {
+        return converter.toDate(boxedTimes[nextIndex()]);
+    }
+
+    @Benchmark
+    public int fromEventType() {
+        return converter.fromEventType(types[nextIndex()]);
+    }
+
+    @Benchmark
+    public EventType toEventType() {
+        return converter.toEventType(typeCodes[nextIndex()]);
+    }
+
+    ///// UUIDs /////
+
+    @Benchmark
+    public byte[] fromUUID() {
+        return converter.fromUUID(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public UUID toUUID() {
+        return converter.toUUID(idBytes[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] uuidToBytes() {
+        return CalendarTypeConverter.uuidToBytes(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public UUID bytesToUUID() {
+        return CalendarTypeConverter.bytesToUUID(idBytes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String uuidToString() {
+        return ids[nextIndex()].toString();
+    }
+
+    @Benchmark
+    public UUID stringToUUID() {
+        return UUID.fromString(idStrings[nextIndex()]);
+    }
+
+    ///// the Calendar versions DateUtils used before it worked in epoch milliseconds /////
+
+    private static Date calendarCombineDateAndTime(Date date, Date time) {
+        Calendar calDate = Calendar.getInstance(), calTime = Calendar.getInstance();
+        calDate.setTime(date);
+        calTime.setTime(time);
+        return new GregorianCalendar(
+                calDate.get(Calendar.YEAR),
+                calDate.get(Calendar.MONTH),
+                calDate.get(Calendar.DAY_OF_MONTH),
+                calTime.get(Calendar.HOUR_OF_DAY),
+                calTime.get(Calendar.MINUTE),
+                calTime.get(Calendar.SECOND)
+                ).getTime();
+    }
+
+    private static Date calendarFixEndTime(Date start, Date end) {
+        end = calendarCombineDateAndTime(start, end);
+        if (end.before(start)) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(end);
+            cal.set(Calendar.DAY_OF_MONTH, cal.get(Calendar.DAY_OF_MONTH) + 1);
+            return cal.getTime();
+        }
+        return end;
+    }
+}
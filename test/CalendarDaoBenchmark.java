@@ -0,0 +1,184 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times every CalendarDao query and write, and the repository's day query built on them, on calendars
+ * of events made by SyntheticCalendar, and prints a table of the median time of each at each size so
+ * it is easy to see which ones stop being interactive as the calendar grows. This runs on the JVM with
+ * Robolectric using the real SQLite. It takes minutes at the larger sizes and checks nothing, so it
+ * only runs when the system property "benchmark.sizes" gives the numbers of events to try, for example
+ * "./gradlew testDebugUnitTest --tests '*CalendarDaoBenchmark' -Dbenchmark.sizes=1000,10000,100000,1000000"
+ * (with the property passed on to the test JVM); otherwise it is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class CalendarDaoBenchmark {
+    private static final long SEED = 299;
+    private static final int DAYS = 4 * 365; // the events are spread over four years
+    private static final int INSERT_BATCH_SIZE = 5000;
+    private static final int REPEATS = 15; // times each query is run, the median is reported
+
+    @Rule
+    public final InstantTaskExecutorRule instantTasks = new InstantTaskExecutorRule();
+
+    // the median milliseconds of each operation at each size, in the order they were first timed
+    private final Map<String, Map<Integer, Double>> results = new LinkedHashMap<>();
+
+    @Test
+    public void scaling() {
+        String sizeList = System.getProperty("benchmark.sizes");
+        assumeTrue("set benchmark.sizes to run the benchmark", sizeList != null);
+        int[] sizes = Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        for (int size : sizes) { run(size); }
+        printTable(sizes);
+    }
+
+    /**
+     * Fills a new in-memory database with the given number of events and times every DAO method on it,
+     * along with the day query the repository makes from the interval index and getEventsByIds().
+     */
+    private void run(int size) {
+        CalendarDatabase database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), CalendarDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .build();
+        CalendarDao dao = database.calendarDao();
+        long firstDay = DateUtils.epochDayFromCivil(2020, 1, 1);
+        long middleDay = firstDay + DAYS / 2;
+
+        // writes, the same way the repository makes them (see CalendarRepository.applyBatch())
+        List<Event> sample = new ArrayList<>(); // one event out of every batch, for the reads and writes by id
+        long start = System.nanoTime();
+        SyntheticCalendar calendar = new SyntheticCalendar(SEED, size, firstDay, DAYS);
+        while (calendar.hasNext()) {
+            List<Event> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            while (calendar.hasNext() && batch.size() < INSERT_BATCH_SIZE) {
+                Event event = calendar.next();
+                CalendarRepository.setDerivedColumns(event);
+                batch.add(event);
+            }
+            dao.addEvents(batch);
+            sample.add(batch.get(0));
+        }
+        record("addEvents (all, per 1k events)", size, (System.nanoTime() - start) / 1e6 / size * 1000);
+        List<UUID> ids = new ArrayList<>();
+        for (Event event : sample.subList(0, Math.min(sample.size(), 500))) { ids.add(event.id); }
+        Event edited = sample.get(0);
+
+        // reads
+        time("getAllEvents", size, () -> get(dao.getAllEvents()));
+        time("getEventById", size, () -> get(dao.getEventById(edited.id)));
+        time("getAllIntervals", size, dao::getAllIntervals);
+        time("getEventsByIds (" + ids.size() + ")", size, () -> dao.getEventsByIds(ids));
+        EventIntervalIndex index = new EventIntervalIndex();
+        start = System.nanoTime();
+        for (EventInterval interval : dao.getAllIntervals()) { index.put(interval); }
+        record("getAllIntervals + index build", size, (System.nanoTime() - start) / 1e6);
+        long dayStart = DateUtils.startOfEpochDay(middleDay), dayEnd = DateUtils.startOfEpochDay(middleDay + 1);
+        time("loadDay (index + getEventsByIds)", size, () -> CalendarRepository.loadRange(dao, index, dayStart, dayEnd));
+        time("getEventsAfter (first page)", size, () -> dao.getEventsAfter(Long.MIN_VALUE, new UUID(0, 0), 50));
+        long middle = DateUtils.startOfEpochDay(middleDay);
+        time("getEventsAfter (middle page)", size, () -> dao.getEventsAfter(middle, new UUID(0, 0), 50));
+        time("getEventsBefore (middle page)", size, () -> dao.getEventsBefore(middle, new UUID(0, 0), 50));
+        time("getDayTypeCounts (month)", size, () -> dao.getDayTypeCounts(middleDay, middleDay + 30));
+        time("getRepeatingEventsBefore", size, () -> dao.getRepeatingEventsBefore(middle));
+        time("searchMatches (\"rev*\")", size, () -> dao.searchMatches("rev*", 2000));
+        time("getSearchResults (" + ids.size() + ")", size, () -> dao.getSearchResults("rev*", ids));
+
+        // single writes
+        time("updateEvent", size, () -> {
+            edited.description = edited.description + " x";
+            dao.updateEvent(edited);
+        });
+        time("removeEvent + addEvent", size, () -> {
+            dao.removeEvent(edited);
+            dao.addEvent(edited);
+        });
+        time("setDays", size, () -> dao.setDays(edited.id, edited.startDay, edited.endDay));
+
+        // batch writes of the sampled events, in one transaction each like CalendarRepository.applyBatch()
+        List<Event> batch = sample.subList(0, Math.min(sample.size(), 100));
+        time("updateEvents (" + batch.size() + ")", size, () -> database.runInTransaction(() -> dao.updateEvents(batch)));
+        time("removeEvents + addEvents (" + batch.size() + ")", size, () -> database.runInTransaction(() -> {
+            dao.removeEvents(batch);
+            dao.addEvents(batch);
+        }));
+
+        // emptying the calendar can only be timed once
+        start = System.nanoTime();
+        dao.removeAllEvents();
+        record("removeAllEvents", size, (System.nanoTime() - start) / 1e6);
+        database.close();
+    }
+
+    /**
+     * Runs an operation several times and records the median time it took.
+     */
+    private void time(String operation, int size, Runnable task) {
+        task.run(); // warm up
+        double[] times = new double[REPEATS];
+        for (int i = 0; i < REPEATS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        record(operation, size, times[REPEATS / 2]);
+    }
+
+    private void record(String operation, int size, double millis) {
+        results.computeIfAbsent(operation, key -> new LinkedHashMap<>()).put(size, millis);
+    }
+
+    /**
+     * Gets the current value of live data, which Room computes right away since its queries are run on the calling
+     * thread here.
+     */
+    private static <T> T get(LiveData<T> live) {
+        List<T> values = new ArrayList<>();
+        Observer<T> observer = values::add;
+        live.observeForever(observer);
+        live.removeObserver(observer);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Prints the median milliseconds of each operation (rows) at each size (columns).
+     */
+    private void printTable(int[] sizes) {
+        StringBuilder table = new StringBuilder(String.format("%-36s", "median ms"));
+        for (int size : sizes) { table.append(String.format("%12d", size)); }
+        table.append('\n');
+        for (Map.Entry<String, Map<Integer, Double>> row : results.entrySet()) {
+            table.append(String.format("%-36s", row.getKey()));
+            for (int size : sizes) {
+                Double millis = row.getValue().get(size);
+                table.append(millis == null ? String.format("%12s", "-") : String.format("%12.2f", millis));
+            }
+            table.append('\n');
+        }
+        System.out.print(table);
+    }
+}
@@ -0,0 +1,135 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the queries the repository runs on the event table search its
+ * indices instead of scanning or sorting the table. Each query is written out the same as in
+ * CalendarDao (with its parameters as "?") since Room does not keep the SQL of a DAO method around.
+ * The same queries are also checked on the table without its indices, as it was in version 1, to
+ * show that the indices are what turn a scan of the table into a search.
+ * This runs on the JVM with Robolectric using the real SQLite.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class CalendarQueryPlanTest {
+    private static final int EVENTS = 2000; // enough that ANALYZE gives the planner realistic statistics
+
+    // the SQL of CalendarDao.getDayTypeCounts() and getEventsAfter()
+    private static final String DAY_TYPE_COUNTS = "SELECT startDay, endDay, type, COUNT(*) AS count FROM event " +
+            "WHERE startDay BETWEEN ? - (SELECT IFNULL(MAX(duration), 0) FROM event) / 86400000 - 2 AND ? " +
+            "AND endDay >= ? AND recurrence IS NULL GROUP BY startDay, endDay, type";
+    private static final String EVENTS_AFTER = "SELECT * FROM event WHERE startTime >= ? AND (startTime > ? OR id > ?) " +
+            "ORDER BY startTime, id LIMIT ?";
+
+    private CalendarDatabase database;
+    private SupportSQLiteDatabase db;
+    private long middle; // a start time in the middle of the events
+
+    @Before
+    public void createDatabase() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), CalendarDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        long firstDay = DateUtils.epochDayFromCivil(2021, 1, 1);
+        List<Event> events = new ArrayList<>();
+        SyntheticCalendar calendar = new SyntheticCalendar(299, EVENTS, firstDay, 365);
+        while (calendar.hasNext()) {
+            Event event = calendar.next();
+            CalendarRepository.setDerivedColumns(event);
+            events.add(event);
+        }
+        database.calendarDao().addEvents(events);
+        db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("ANALYZE");
+        middle = DateUtils.startOfEpochDay(firstDay + 182);
+    }
+
+    @After
+    public void closeDatabase() {
+        database.close();
+    }
+
+    ///// days and ranges (getDayTypeCounts() and getEventsAfter()) /////
+
+    @Test
+    public void dayQuerySearchesTheDayAndDurationIndices() {
+        long day = DateUtils.toEpochDay(middle);
+        String plan = plan(DAY_TYPE_COUNTS, day, day + 30, day);
+        assertSearches(plan, "index_Event_startDay_endDay");
+        assertTrue(plan, plan.contains("index_Event_duration"));
+    }
+
+    @Test
+    public void dayAndRangeQueriesScanWithoutTheIndices() {
+        // the table as it was in version 1, before it had any indices
+        List<String> indices = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'Event' " +
+                "AND name LIKE 'index_Event_%'")) {
+            while (cursor.moveToNext()) { indices.add(cursor.getString(0)); }
+        }
+        for (String index : indices) { db.execSQL("DROP INDEX `" + index + "`"); }
+        long day = DateUtils.toEpochDay(middle);
+        String dayPlan = plan(DAY_TYPE_COUNTS, day, day + 30, day);
+        assertTrue(dayPlan, dayPlan.contains("SCAN event"));
+        String rangePlan = plan(EVENTS_AFTER, middle, middle, new byte[16], 50);
+        assertTrue(rangePlan, rangePlan.contains("SCAN event") && rangePlan.contains("TEMP B-TREE"));
+    }
+
+    ///// keyset paging (getEventsAfter() and getEventsBefore()) /////
+
+    @Test
+    public void eventsAfterSeeksOnStartTimeAndId() {
+        String plan = plan(EVENTS_AFTER, middle, middle, new byte[16], 50);
+        assertSearches(plan, "index_Event_startTime_id");
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void eventsBeforeSeeksOnStartTimeAndId() {
+        String plan = plan("SELECT * FROM event WHERE startTime <= ? AND (startTime < ? OR id < ?) " +
+                "ORDER BY startTime DESC, id DESC LIMIT ?", middle, middle, new byte[16], 50);
+        assertSearches(plan, "index_Event_startTime_id");
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    ///// helpers /////
+
+    /**
+     * Gets the query plan of a query, one line per step.
+     */
+    private String plan(String sql, Object... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            while (cursor.moveToNext()) { plan.append(cursor.getString(3)).append('\n'); }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Checks that a plan searches the event table with an index rather than scanning it.
+     */
+    private static void assertSearches(String plan, String index) {
+        assertTrue(plan, plan.contains("SEARCH") && plan.contains(index));
+        assertFalse(plan, plan.contains("SCAN"));
+    }
+}
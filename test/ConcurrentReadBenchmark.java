@@ -0,0 +1,141 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how long the day list's reads take while a large import is being written, the way the
+ * repository makes them: a few reader threads each load a day (the interval index and then
+ * getEventsByIds()) and count a month of events by type (getDayTypeCounts()) over and over, first on
+ * their own and then while a writer thread commits batches of new events one transaction after
+ * another as importIcs() does. This is done on a database file in rollback-journal (TRUNCATE) mode
+ * and in WAL mode, as the repository uses, and the percentiles of the read latencies are printed for
+ * each. In WAL mode the reads should take about as long with the writer running as without it.
+ * This runs on the JVM with Robolectric using the real SQLite. Like CalendarDaoBenchmark it only runs
+ * when the system property "benchmark.sizes" gives the numbers of events to fill the calendar with,
+ * for example "-Dbenchmark.sizes=10000,100000"; otherwise it is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class ConcurrentReadBenchmark {
+    private static final long SEED = 299;
+    private static final int DAYS = 4 * 365; // the events are spread over four years
+    private static final int READERS = 2;
+    private static final int WRITE_BATCH_SIZE = 500; // the same as CalendarRepository.TRANSFER_BATCH_SIZE
+    private static final long PHASE_MILLIS = 5000; // how long the reads are timed with and without the writer
+
+    @Test
+    public void readLatencyUnderWrites() throws Exception {
+        String sizeList = System.getProperty("benchmark.sizes");
+        assumeTrue("set benchmark.sizes to run the benchmark", sizeList != null);
+        int[] sizes = Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        System.out.printf("%-10s %-22s %10s %10s %10s %10s %10s%n",
+                "events", "journal, writes", "reads", "p50 ms", "p99 ms", "max ms", "written/s");
+        for (int size : sizes) {
+            for (RoomDatabase.JournalMode mode : new RoomDatabase.JournalMode[] {
+                    RoomDatabase.JournalMode.TRUNCATE, RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING }) {
+                run(size, mode);
+            }
+        }
+    }
+
+    /**
+     * Fills a new database file with the given number of events and times the reads in it with and
+     * without a writer.
+     */
+    private void run(int size, RoomDatabase.JournalMode mode) throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        String name = "benchmark_" + mode.name().toLowerCase();
+        context.deleteDatabase(name);
+        CalendarDatabase database = Room.databaseBuilder(context, CalendarDatabase.class, name)
+                .setJournalMode(mode)
+                .build();
+        CalendarDao dao = database.calendarDao();
+        long firstDay = DateUtils.epochDayFromCivil(2020, 1, 1);
+        SyntheticCalendar calendar = new SyntheticCalendar(SEED, size, firstDay, DAYS);
+        while (calendar.hasNext()) { dao.addEvents(nextBatch(calendar)); }
+        EventIntervalIndex index = new EventIntervalIndex();
+        for (EventInterval interval : dao.getAllIntervals()) { index.put(interval); }
+
+        String label = mode == RoomDatabase.JournalMode.TRUNCATE ? "TRUNCATE" : "WAL";
+        measure(size, label + ", none", dao, index, firstDay, null);
+        // new events for the writer, in a part of the calendar the readers don't look at
+        SyntheticCalendar imported = new SyntheticCalendar(SEED + 1, Integer.MAX_VALUE, firstDay + DAYS, DAYS);
+        measure(size, label + ", import", dao, index, firstDay,
+                () -> database.runInTransaction(() -> dao.addEvents(nextBatch(imported))));
+        database.close();
+        context.deleteDatabase(name);
+    }
+
+    /**
+     * Runs the readers for PHASE_MILLIS, with the write run over and over on another thread if it is not null, and
+     * prints the percentiles of the read latencies.
+     */
+    private static void measure(int size, String label, CalendarDao dao, EventIntervalIndex index, long firstDay,
+                                Runnable write) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(READERS + 1);
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<Integer>> tasks = new ArrayList<>();
+        for (int reader = 0; reader < READERS; reader++) {
+            Random random = new Random(reader);
+            tasks.add(threads.submit(() -> {
+                while (running.get()) {
+                    long day = firstDay + random.nextInt(DAYS);
+                    long start = System.nanoTime();
+                    CalendarRepository.loadRange(dao, index, DateUtils.startOfEpochDay(day), DateUtils.startOfEpochDay(day + 1));
+                    dao.getDayTypeCounts(day, day + 30);
+                    latencies.record(System.nanoTime() - start);
+                }
+                return 0;
+            }));
+        }
+        Future<Integer> writes = threads.submit(() -> {
+            int count = 0;
+            while (write != null && running.get()) {
+                write.run();
+                count++;
+            }
+            return count;
+        });
+        Thread.sleep(PHASE_MILLIS);
+        running.set(false);
+        for (Future<Integer> task : tasks) { task.get(); }
+        double writesPerSecond = writes.get() * WRITE_BATCH_SIZE * 1000.0 / PHASE_MILLIS;
+        threads.shutdown();
+        System.out.printf("%-10d %-22s %10d %10.2f %10.2f %10.2f %10.0f%n", size, label, latencies.getCount(),
+                latencies.getPercentile(50) / 1e6, latencies.getPercentile(99) / 1e6, latencies.getMax() / 1e6,
+                writesPerSecond);
+    }
+
+    private static List<Event> nextBatch(SyntheticCalendar calendar) {
+        List<Event> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        while (calendar.hasNext() && batch.size() < WRITE_BATCH_SIZE) {
+            Event event = calendar.next();
+            CalendarRepository.setDerivedColumns(event);
+            batch.add(event);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,107 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.Transformations;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the day list costs the same to refresh after a write however many days have been
+ * looked at. The selected day is followed with a single switchMap the same way ListFragment does it,
+ * so only the query of the current day is ever active: a write re-runs that one query, and not one
+ * for every day visited before it. This runs on the JVM with Robolectric using the real SQLite and
+ * the repository's own reader and writer threads.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DayObserverInvalidationTest {
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public final InstantTaskExecutorRule instantTasks = new InstantTaskExecutorRule();
+
+    @Test
+    public void oneWriteRequeriesOnlyTheSelectedDay() throws Exception {
+        CalendarRepository.initialize(ApplicationProvider.getApplicationContext());
+        CalendarRepository repository = CalendarRepository.get();
+        // writes run in order on one thread, so once this is done the index has been loaded
+        repository.addEvents(Collections.emptyList()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long firstDay = DateUtils.epochDayFromCivil(2021, 3, 1);
+        for (int visited : new int[] { 1, 10, 100 }) {
+            // one live data that follows the selected day, as in ListFragment
+            MutableLiveData<Date> selectedDay = new MutableLiveData<>();
+            LiveData<List<Event>> events = Transformations.switchMap(selectedDay, repository::getEventsOnDay);
+            AtomicReference<List<Event>> shown = new AtomicReference<>();
+            Observer<List<Event>> observer = shown::set;
+            events.observeForever(observer);
+            long lastDay = firstDay + visited - 1;
+            for (long day = firstDay; day <= lastDay; day++) {
+                selectedDay.setValue(new Date(DateUtils.startOfEpochDay(day)));
+            }
+            waitFor(() -> shown.get() != null);
+
+            // a single write to the selected day
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            repository.setMetrics(metrics);
+            Event event = new Event();
+            event.startTime = new Date(DateUtils.startOfEpochDay(lastDay) + 10 * HOUR);
+            event.endTime = new Date(event.startTime.getTime() + HOUR);
+            long start = System.nanoTime();
+            repository.addEvents(Collections.singletonList(event)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            waitFor(() -> contains(shown.get(), event.id));
+            double millis = (System.nanoTime() - start) / 1e6;
+            repository.setMetrics(RepositoryMetrics.NONE);
+            events.removeObserver(observer);
+
+            System.out.printf("visited %3d days: %d day re-query, refreshed in %.2f ms%n",
+                    visited, metrics.getRequeryCount(RepositoryMetrics.Operation.DAY_QUERY), millis);
+            assertEquals("day re-queries after visiting " + visited + " days",
+                    1, metrics.getRequeryCount(RepositoryMetrics.Operation.DAY_QUERY));
+            firstDay = lastDay + 1; // the next round visits days that are not cached yet
+        }
+    }
+
+    private static boolean contains(List<Event> events, UUID id) {
+        if (events == null) { return false; }
+        for (Event event : events) {
+            if (event.id.equals(id)) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the background threads to make a condition true.
+     */
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.isTrue()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private interface Condition {
+        boolean isTrue();
+    }
+}
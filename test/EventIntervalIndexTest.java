@@ -0,0 +1,177 @@
+package edu.moravian.csci299.mocalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the boundaries of the half-open overlap rule shared by EventIntervalIndex.overlapping() and
+ * RecurrenceRule.expand(): an event spanning a range is in it, an event ending exactly at the start of
+ * a range or starting exactly at its end is not, and an event that is a single point in time is in a
+ * range if it is at or after the start and before the end. The tests run in UTC so every day is 24
+ * hours long.
+ */
+public class EventIntervalIndexTest {
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+    private static final long MONDAY = DateUtils.epochDayFromCivil(2021, 3, 1) * DAY; // the day being looked at
+
+    private final EventIntervalIndex index = new EventIntervalIndex();
+    private TimeZone defaultZone;
+
+    @Before
+    public void useUtc() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        DateUtils.onTimeZoneChanged();
+    }
+
+    @After
+    public void restoreTimeZone() {
+        TimeZone.setDefault(defaultZone);
+        DateUtils.onTimeZoneChanged();
+    }
+
+    ///// EventIntervalIndex /////
+
+    @Test
+    public void spanningEventIsOnEveryDay() {
+        UUID id = put(MONDAY - DAY + 20 * HOUR, MONDAY + 2 * DAY + 3 * HOUR);
+        assertEquals(Collections.singletonList(id), index.overlapping(MONDAY, MONDAY + DAY));
+        assertEquals(Collections.singletonList(id), index.overlapping(MONDAY + 2 * DAY, MONDAY + 3 * DAY));
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY + 3 * DAY, MONDAY + 4 * DAY));
+    }
+
+    @Test
+    public void eventEndingAtStartOfRangeIsNotInIt() {
+        UUID id = put(MONDAY - 2 * HOUR, MONDAY); // ends at midnight
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY, MONDAY + DAY));
+        assertEquals(Collections.singletonList(id), index.overlapping(MONDAY - DAY, MONDAY));
+    }
+
+    @Test
+    public void eventStartingAtEndOfRangeIsNotInIt() {
+        UUID id = put(MONDAY + DAY, MONDAY + DAY + HOUR); // starts at the next midnight
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY, MONDAY + DAY));
+        assertEquals(Collections.singletonList(id), index.overlapping(MONDAY + DAY, MONDAY + 2 * DAY));
+    }
+
+    @Test
+    public void pointEventIsOnlyInTheRangeItStartsIn() {
+        UUID atMidnight = put(MONDAY, null);
+        UUID atNoon = put(MONDAY + 12 * HOUR, null);
+        assertEquals(Arrays.asList(atMidnight, atNoon), index.overlapping(MONDAY, MONDAY + DAY));
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY - DAY, MONDAY));
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY + 12 * HOUR + 1, MONDAY + DAY));
+    }
+
+    @Test
+    public void emptyRangeHasNoEvents() {
+        put(MONDAY, MONDAY + DAY);
+        assertEquals(Collections.emptyList(), index.overlapping(MONDAY + HOUR, MONDAY + HOUR));
+    }
+
+    @Test
+    public void overlapsMatchesOverlapping() {
+        long[][] events = {
+                { MONDAY - HOUR, MONDAY }, { MONDAY, MONDAY }, { MONDAY, MONDAY + HOUR },
+                { MONDAY + DAY - 1, MONDAY + DAY }, { MONDAY + DAY, MONDAY + DAY }, { MONDAY - DAY, MONDAY + 2 * DAY },
+        };
+        for (long[] event : events) {
+            index.clear();
+            UUID id = put(event[0], event[1]);
+            boolean found = index.overlapping(MONDAY, MONDAY + DAY).contains(id);
+            assertEquals(found, EventIntervalIndex.overlaps(event[0], event[1], MONDAY, MONDAY + DAY));
+        }
+        assertFalse(EventIntervalIndex.overlaps(MONDAY - HOUR, MONDAY, MONDAY, MONDAY + DAY));
+        assertTrue(EventIntervalIndex.overlaps(MONDAY, MONDAY, MONDAY, MONDAY + DAY));
+        assertFalse(EventIntervalIndex.overlaps(MONDAY + DAY, MONDAY + DAY, MONDAY, MONDAY + DAY));
+    }
+
+    ///// RecurrenceRule.expand() /////
+
+    @Test
+    public void occurrenceEndingAtStartOfRangeIsNotExpanded() {
+        // 22:00 to midnight every day
+        Event series = repeating(MONDAY - 7 * DAY + 22 * HOUR, MONDAY - 6 * DAY, "FREQ=DAILY");
+        assertEquals(Collections.singletonList(MONDAY + 22 * HOUR), starts(RecurrenceRule.expand(
+                Collections.singletonList(series), MONDAY, MONDAY + DAY)));
+    }
+
+    @Test
+    public void occurrenceStartingAtEndOfRangeIsNotExpanded() {
+        // midnight to 01:00 every day
+        Event series = repeating(MONDAY - 7 * DAY, MONDAY - 7 * DAY + HOUR, "FREQ=DAILY");
+        assertEquals(Collections.singletonList(MONDAY), starts(RecurrenceRule.expand(
+                Collections.singletonList(series), MONDAY, MONDAY + DAY)));
+    }
+
+    @Test
+    public void spanningOccurrenceIsExpandedOnEveryDay() {
+        // 20:00 on one day to 03:00 two days later, every week
+        Event series = repeating(MONDAY - 7 * DAY - DAY + 20 * HOUR, MONDAY - 7 * DAY + DAY + 3 * HOUR, "FREQ=WEEKLY");
+        for (long day = MONDAY; day <= MONDAY + DAY; day += DAY) {
+            assertEquals(Collections.singletonList(MONDAY - DAY + 20 * HOUR), starts(RecurrenceRule.expand(
+                    Collections.singletonList(series), day, day + DAY)));
+        }
+        assertEquals(Collections.emptyList(), starts(RecurrenceRule.expand(
+                Collections.singletonList(series), MONDAY + 2 * DAY, MONDAY + 3 * DAY)));
+    }
+
+    @Test
+    public void pointOccurrencesAreOnlyInTheRangeTheyStartIn() {
+        // due at midnight every day
+        Event series = repeating(MONDAY - 7 * DAY, null, "FREQ=DAILY");
+        assertEquals(Collections.singletonList(MONDAY), starts(RecurrenceRule.expand(
+                Collections.singletonList(series), MONDAY, MONDAY + DAY)));
+        assertEquals(Arrays.asList(MONDAY, MONDAY + DAY), starts(RecurrenceRule.expand(
+                Collections.singletonList(series), MONDAY, MONDAY + DAY + 1)));
+    }
+
+    ///// DateUtils.toEndEpochDay() /////
+
+    @Test
+    public void eventEndingAtMidnightEndsTheDayBefore() {
+        long monday = MONDAY / DAY;
+        assertEquals(monday, DateUtils.toEndEpochDay(MONDAY + 22 * HOUR, MONDAY + DAY));
+        assertEquals(monday + 1, DateUtils.toEndEpochDay(MONDAY + 22 * HOUR, MONDAY + DAY + 1));
+        assertEquals(monday, DateUtils.toEndEpochDay(MONDAY, MONDAY)); // a single point in time at midnight
+    }
+
+    ///// helpers /////
+
+    private UUID put(long start, Long end) {
+        UUID id = UUID.randomUUID();
+        index.put(id, start, end);
+        return id;
+    }
+
+    private static Event repeating(long start, Long end, String rule) {
+        Event event = new Event();
+        event.id = UUID.randomUUID();
+        event.name = "Repeating";
+        event.description = "";
+        event.startTime = new Date(start);
+        event.endTime = end == null ? null : new Date(end);
+        event.recurrence = rule;
+        return event;
+    }
+
+    private static List<Long> starts(List<Event> events) {
+        List<Long> starts = new ArrayList<>();
+        for (Event event : events) { starts.add(event.startTime.getTime()); }
+        return starts;
+    }
+}
@@ -0,0 +1,135 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the throughput in events per second of moving iCalendar (.ics) files in and out of the
+ * calendar: writing a file of events made by SyntheticCalendar with IcsWriter, parsing it back with
+ * IcsReader alone, importing it through the repository (parsing plus the batched transactions of
+ * importIcs()), and exporting the calendar again with exportIcs(). The calendar is emptied before each
+ * size by restoring a snapshot taken before anything was imported. This runs on the JVM with
+ * Robolectric using the real SQLite and the repository's own threads. Like CalendarDaoBenchmark it
+ * only runs when the system property "benchmark.sizes" gives the numbers of events to try, for
+ * example "-Dbenchmark.sizes=1000,10000,100000"; otherwise it is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class IcsTransferBenchmark {
+    private static final long SEED = 299;
+    private static final int DAYS = 4 * 365; // the events are spread over four years
+    private static final long TIMEOUT_MINUTES = 30;
+
+    // the events per second of each step at each size, in the order they were first timed
+    private final Map<String, Map<Integer, Double>> results = new LinkedHashMap<>();
+
+    @Test
+    public void throughput() throws Exception {
+        String sizeList = System.getProperty("benchmark.sizes");
+        assumeTrue("set benchmark.sizes to run the benchmark", sizeList != null);
+        int[] sizes = Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        CalendarRepository.initialize(ApplicationProvider.getApplicationContext());
+        CalendarRepository repository = CalendarRepository.get();
+        File empty = File.createTempFile("empty", ".snapshot");
+        File ics = File.createTempFile("calendar", ".ics");
+        File exported = File.createTempFile("exported", ".ics");
+        try {
+            // Robolectric gives every test a new application with an empty database
+            repository.exportSnapshot(empty, null).get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            for (int size : sizes) {
+                repository.restoreSnapshot(empty, null).get(TIMEOUT_MINUTES, TimeUnit.MINUTES); // empty the calendar
+                run(repository, size, ics, exported);
+            }
+        } finally {
+            empty.delete();
+            ics.delete();
+            exported.delete();
+        }
+        printTable(sizes);
+    }
+
+    /**
+     * Writes, reads, imports, and exports a file of the given number of events.
+     */
+    private void run(CalendarRepository repository, int size, File ics, File exported) throws Exception {
+        long firstDay = DateUtils.epochDayFromCivil(2020, 1, 1);
+        long start = System.nanoTime();
+        try (IcsWriter writer = new IcsWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(ics), StandardCharsets.UTF_8)))) {
+            SyntheticCalendar calendar = new SyntheticCalendar(SEED + size, size, firstDay, DAYS);
+            while (calendar.hasNext()) { writer.write(calendar.next()); }
+        }
+        record("write .ics (IcsWriter)", size, size, start);
+
+        start = System.nanoTime();
+        int read = 0;
+        try (IcsReader reader = new IcsReader(open(ics))) {
+            while (reader.next() != null) { read++; }
+        }
+        record("read .ics (IcsReader)", size, read, start);
+        assertEquals(size, read);
+
+        start = System.nanoTime();
+        CalendarRepository.ImportResult imported = repository.importIcs(open(ics), null)
+                .get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        record("importIcs", size, imported.imported, start);
+        assertEquals(size, imported.imported);
+
+        start = System.nanoTime();
+        int count = repository.exportIcs(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(exported), StandardCharsets.UTF_8)), null).get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        record("exportIcs", size, count, start);
+        assertEquals(size, count);
+        System.out.printf("%d events: %.1f MB file%n", size, ics.length() / 1e6);
+    }
+
+    private static BufferedReader open(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    private void record(String step, int size, int events, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        results.computeIfAbsent(step, key -> new LinkedHashMap<>()).put(size, events / seconds);
+    }
+
+    /**
+     * Prints the events per second of each step (rows) at each size (columns).
+     */
+    private void printTable(int[] sizes) {
+        StringBuilder table = new StringBuilder(String.format("%-36s", "events/s"));
+        for (int size : sizes) { table.append(String.format("%12d", size)); }
+        table.append('\n');
+        for (Map.Entry<String, Map<Integer, Double>> row : results.entrySet()) {
+            table.append(String.format("%-36s", row.getKey()));
+            for (int size : sizes) {
+                Double rate = row.getValue().get(size);
+                table.append(rate == null ? String.format("%12s", "-") : String.format("%12.0f", rate));
+            }
+            table.append('\n');
+        }
+        System.out.print(table);
+    }
+}
@@ -0,0 +1,156 @@
+package edu.moravian.csci299.mocalendar;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares storing the event ids as 36-character strings, as version 2 of the database did, with
+ * storing them as 16-byte blobs, as every version since does. The same events made by
+ * SyntheticCalendar are written to two database files whose event tables and indices differ only in
+ * the type of the id column, and the size of each file and the median time to load every event from
+ * it (reading all the columns and making the ids into UUIDs the way the type converter of each version
+ * does) are printed. The full-text index is left out since it does not hold the ids. This runs on the
+ * JVM with Robolectric using the real SQLite. Like CalendarDaoBenchmark it only runs when the system
+ * property "benchmark.sizes" gives the numbers of events to try, for example
+ * "-Dbenchmark.sizes=10000,100000"; otherwise it is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class IdStorageBenchmark {
+    private static final long SEED = 299;
+    private static final int DAYS = 4 * 365; // the events are spread over four years
+    private static final int REPEATS = 5; // times every event is loaded, the median is reported
+
+    // the event table and its indices as in Event, with the type of the id column left to fill in
+    private static final String[] SCHEMA = {
+            "CREATE TABLE `Event` (`id` %s NOT NULL, `startTime` INTEGER NOT NULL, `endTime` INTEGER, " +
+                    "`name` TEXT NOT NULL, `type` INTEGER NOT NULL, `description` TEXT NOT NULL, `recurrence` TEXT, " +
+                    "`excludedDates` TEXT, `startDay` INTEGER NOT NULL DEFAULT 0, `endDay` INTEGER NOT NULL DEFAULT 0, " +
+                    "`duration` INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(`id`))",
+            "CREATE INDEX `index_Event_startTime_id` ON `Event` (`startTime`, `id`)",
+            "CREATE INDEX `index_Event_endTime` ON `Event` (`endTime`)",
+            "CREATE INDEX `index_Event_type_startTime` ON `Event` (`type`, `startTime`)",
+            "CREATE INDEX `index_Event_startDay_endDay` ON `Event` (`startDay`, `endDay`)",
+            "CREATE INDEX `index_Event_duration` ON `Event` (`duration`)",
+    };
+
+    @Test
+    public void textAndBlobIds() {
+        String sizeList = System.getProperty("benchmark.sizes");
+        assumeTrue("set benchmark.sizes to run the benchmark", sizeList != null);
+        int[] sizes = Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        System.out.printf("%-10s %-6s %12s %16s%n", "events", "id", "file MB", "load all ms");
+        for (int size : sizes) {
+            for (boolean blob : new boolean[] { false, true }) { run(size, blob); }
+        }
+    }
+
+    /**
+     * Writes the given number of events to a new database file with ids of one type and times loading them back.
+     */
+    private void run(int size, boolean blob) {
+        File file = ApplicationProvider.getApplicationContext().getDatabasePath("ids_" + (blob ? "blob" : "text"));
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        for (String sql : SCHEMA) { db.execSQL(String.format(sql, blob ? "BLOB" : "TEXT")); }
+        SQLiteStatement insert = db.compileStatement("INSERT INTO `Event` (`id`, `startTime`, `endTime`, `name`, " +
+                "`type`, `description`, `recurrence`, `excludedDates`, `startDay`, `endDay`, `duration`) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            SyntheticCalendar calendar = new SyntheticCalendar(SEED, size, DateUtils.epochDayFromCivil(2020, 1, 1), DAYS);
+            while (calendar.hasNext()) {
+                Event event = calendar.next();
+                CalendarRepository.setDerivedColumns(event);
+                if (blob) { insert.bindBlob(1, CalendarTypeConverter.uuidToBytes(event.id)); }
+                else { insert.bindString(1, event.id.toString()); }
+                insert.bindLong(2, event.startTime.getTime());
+                if (event.endTime == null) { insert.bindNull(3); } else { insert.bindLong(3, event.endTime.getTime()); }
+                insert.bindString(4, event.name);
+                insert.bindLong(5, event.type.code);
+                insert.bindString(6, event.description);
+                if (event.recurrence == null) { insert.bindNull(7); } else { insert.bindString(7, event.recurrence); }
+                if (event.excludedDates == null) { insert.bindNull(8); } else { insert.bindString(8, event.excludedDates); }
+                insert.bindLong(9, event.startDay);
+                insert.bindLong(10, event.endDay);
+                insert.bindLong(11, event.duration);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.execSQL("VACUUM"); // so the file holds just the rows and indices, with no free pages
+
+        loadAll(db, blob); // warm up
+        double[] times = new double[REPEATS];
+        for (int i = 0; i < REPEATS; i++) {
+            long start = System.nanoTime();
+            assertEquals(size, loadAll(db, blob).size());
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        db.close();
+        System.out.printf("%-10d %-6s %12.2f %16.2f%n", size, blob ? "BLOB" : "TEXT", file.length() / 1e6, times[REPEATS / 2]);
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    /**
+     * Loads every event the way the generated CalendarDao.getAllEvents() does, with the id converted from a blob by
+     * CalendarTypeConverter or from a string by UUID.fromString() as the converter of version 2 did.
+     */
+    private static List<Event> loadAll(SQLiteDatabase db, boolean blob) {
+        List<Event> events = new ArrayList<>();
+        CalendarTypeConverter converter = new CalendarTypeConverter();
+        try (Cursor cursor = db.rawQuery("SELECT * FROM `Event`", null)) {
+            int id = cursor.getColumnIndexOrThrow("id");
+            int startTime = cursor.getColumnIndexOrThrow("startTime");
+            int endTime = cursor.getColumnIndexOrThrow("endTime");
+            int name = cursor.getColumnIndexOrThrow("name");
+            int type = cursor.getColumnIndexOrThrow("type");
+            int description = cursor.getColumnIndexOrThrow("description");
+            int recurrence = cursor.getColumnIndexOrThrow("recurrence");
+            int excludedDates = cursor.getColumnIndexOrThrow("excludedDates");
+            int startDay = cursor.getColumnIndexOrThrow("startDay");
+            int endDay = cursor.getColumnIndexOrThrow("endDay");
+            int duration = cursor.getColumnIndexOrThrow("duration");
+            while (cursor.moveToNext()) {
+                Event event = new Event();
+                event.id = blob ? converter.toUUID(cursor.getBlob(id)) : UUID.fromString(cursor.getString(id));
+                event.startTime = new Date(cursor.getLong(startTime));
+                event.endTime = cursor.isNull(endTime) ? null : new Date(cursor.getLong(endTime));
+                event.name = cursor.getString(name);
+                event.type = converter.toEventType(cursor.getInt(type));
+                event.description = cursor.getString(description);
+                event.recurrence = cursor.getString(recurrence);
+                event.excludedDates = cursor.getString(excludedDates);
+                event.startDay = cursor.getLong(startDay);
+                event.endDay = cursor.getLong(endDay);
+                event.duration = cursor.getLong(duration);
+                events.add(event);
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.moravian.csci299.mocalendar;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times the search the repository runs for each keystroke of search-as-you-type (the query made by
+ * toPrefixQuery() and then loadSearch(), which ranks the matches and loads the snippets of the best)
+ * on calendars of events made by SyntheticCalendar, and checks that every keystroke takes less than a
+ * frame (16 ms) on calendars of up to 100k events, so the results of one keystroke are shown before
+ * the next is typed. This runs on the JVM with Robolectric using the real SQLite. Like
+ * CalendarDaoBenchmark it only runs when the system property "benchmark.sizes" gives the numbers of
+ * events to try, for example "-Dbenchmark.sizes=10000,100000"; otherwise it is skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class SearchAsYouTypeBenchmark {
+    private static final long SEED = 299;
+    private static final int DAYS = 4 * 365; // the events are spread over four years
+    private static final int INSERT_BATCH_SIZE = 5000;
+    private static final int REPEATS = 15; // times each keystroke's search is run, the median is reported
+    private static final int RESULT_LIMIT = 50; // the results shown in the list
+    private static final double FRAME_MILLIS = 16;
+    private static final int FRAME_BUDGET_EVENTS = 100_000; // the largest calendar that must stay within a frame
+    private static final String[] TYPED = { "review notes", "laptop", "quiz 7" };
+
+    @Test
+    public void everyKeystrokeFitsInAFrame() {
+        String sizeList = System.getProperty("benchmark.sizes");
+        assumeTrue("set benchmark.sizes to run the benchmark", sizeList != null);
+        int[] sizes = Arrays.stream(sizeList.split(",")).mapToInt(size -> Integer.parseInt(size.trim())).toArray();
+        List<String> overBudget = new ArrayList<>();
+        for (int size : sizes) { run(size, overBudget); }
+        assertTrue("over a frame: " + overBudget, overBudget.isEmpty());
+    }
+
+    /**
+     * Fills a new in-memory database with the given number of events and times the search of each prefix of the
+     * typed text, noting the ones that take more than a frame.
+     */
+    private void run(int size, List<String> overBudget) {
+        CalendarDatabase database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), CalendarDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        CalendarDao dao = database.calendarDao();
+        SyntheticCalendar calendar = new SyntheticCalendar(SEED, size, DateUtils.epochDayFromCivil(2020, 1, 1), DAYS);
+        while (calendar.hasNext()) {
+            List<Event> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            while (calendar.hasNext() && batch.size() < INSERT_BATCH_SIZE) {
+                Event event = calendar.next();
+                CalendarRepository.setDerivedColumns(event);
+                batch.add(event);
+            }
+            dao.addEvents(batch);
+        }
+
+        System.out.printf("%d events%n%-16s %-18s %8s %10s %10s%n", size, "typed", "query", "results", "median ms", "max ms");
+        for (String typed : TYPED) {
+            for (int length = 1; length <= typed.length(); length++) {
+                String query = CalendarRepository.toPrefixQuery(typed.substring(0, length));
+                if (query.isEmpty()) { continue; }
+                int results = CalendarRepository.loadSearch(dao, query, RESULT_LIMIT).size(); // warm up
+                double[] times = new double[REPEATS];
+                for (int i = 0; i < REPEATS; i++) {
+                    long start = System.nanoTime();
+                    CalendarRepository.loadSearch(dao, query, RESULT_LIMIT);
+                    times[i] = (System.nanoTime() - start) / 1e6;
+                }
+                Arrays.sort(times);
+                double median = times[REPEATS / 2];
+                System.out.printf("%-16s %-18s %8d %10.2f %10.2f%n", "\"" + typed.substring(0, length) + "\"",
+                        query, results, median, times[REPEATS - 1]);
+                if (size <= FRAME_BUDGET_EVENTS && median > FRAME_MILLIS) {
+                    overBudget.add(size + " events \"" + typed.substring(0, length) + "\" " + median + " ms");
+                }
+            }
+        }
+        database.close();
+    }
+}